@@ -0,0 +1,162 @@
+package com.testgenie.gradle;
+
+import com.testgenie.BatchGenerator;
+import com.testgenie.GenerationOptions;
+import com.testgenie.TestGenerator;
+import com.testgenie.resolve.TypeIndex;
+import com.testgenie.stats.RunStats;
+import com.testgenie.template.TemplateSet;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileType;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.InputChanges;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates test classes for Java sources inside the Gradle daemon, without forking a JVM.
+ *
+ * The sources are an incremental input and the flags, templates and classpath are regular inputs, so:
+ * - Gradle skips the task when nothing changed, and restores its output from the build cache when it can.
+ * - When only sources changed, the test files of deleted sources are removed and every source is passed to the
+ *   BatchGenerator in the same order as in a full run. Its manifest skips the unchanged ones, so only the changed
+ *   sources and those sharing a test class name with them are generated again.
+ * - When anything else changed, or a deleted source is not in the manifest, e.g. after the output was restored
+ *   from a cache that another version wrote, the output directory is cleared and every source is generated again.
+ * Either way the output is the one a full run would produce, so only it ends up in the build cache.
+ */
+@CacheableTask
+public abstract class GenerateTestsTask extends DefaultTask {
+
+    public GenerateTestsTask() {
+        getFlags().convention(List.of());
+        getIgnoreFlags().convention(List.of());
+        getResolve().convention(false);
+        getThreads().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The Java source files to generate test classes for. Like every @SkipWhenEmpty input, it is incremental.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSource();
+
+    /**
+     * The scenarios to generate stubs for, e.g. "nulls", as for --flag. All of them if empty.
+     */
+    @Input
+    public abstract SetProperty<String> getFlags();
+
+    /**
+     * The scenarios not to generate stubs for, as for --ignore.
+     */
+    @Input
+    public abstract SetProperty<String> getIgnoreFlags();
+
+    /**
+     * A directory with templates overriding the built-in ones, as for --templates.
+     */
+    @Optional
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getTemplatesDir();
+
+    /**
+     * Whether to resolve field and parameter types, as for --resolve. Implied by a non-empty classpath.
+     */
+    @Input
+    public abstract Property<Boolean> getResolve();
+
+    /**
+     * The jars and class directories to resolve types from, as for --classpath.
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The number of worker threads. It does not affect the output.
+     */
+    @Internal
+    public abstract Property<Integer> getThreads();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void generate(InputChanges changes) throws IOException, InterruptedException {
+        Path outputDir = getOutputDir().get().getAsFile().toPath();
+        GenerationOptions options;
+        TemplateSet templates;
+        try {
+            options = GenerationOptions.fromFlags(getFlags().get(), getIgnoreFlags().get());
+            templates = getTemplatesDir().isPresent()
+                    ? TemplateSet.load(getTemplatesDir().get().getAsFile().toPath())
+                    : TemplateSet.defaults();
+        } catch (IllegalArgumentException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+
+        List<Path> removed = new ArrayList<>();
+        if (changes.isIncremental()) {
+            for (FileChange change : changes.getFileChanges(getSource())) {
+                if (change.getFileType() != FileType.DIRECTORY && change.getChangeType() == ChangeType.REMOVED) {
+                    removed.add(change.getFile().toPath());
+                }
+            }
+        }
+        // A fixed order keeps runs reproducible: when two sources produce the same test class name, the later one
+        // overwrites the test class of the earlier one, which is logged as a warning
+        List<Path> sources = new ArrayList<>();
+        getSource().getFiles().forEach(file -> sources.add(file.toPath()));
+        sources.sort(null);
+
+        List<Path> classpath = getClasspath().getFiles().stream().map(File::toPath).toList();
+        int threads = getThreads().get();
+        try (TypeIndex types = getResolve().get() || !classpath.isEmpty() ? TypeIndex.of(classpath) : TypeIndex.disabled()) {
+            BatchGenerator batch = new BatchGenerator(new TestGenerator(templates), threads,
+                    BatchGenerator.defaultMaxInFlight(threads), types, RunStats.disabled());
+            if (!changes.isIncremental() || !batch.isRecorded(removed, outputDir, options)) {
+                // Stale test files of a previous configuration, or of deleted sources the manifest does not know,
+                // must not end up in the cached output
+                getFileSystemOperations().delete(spec -> spec.delete(outputDir.toFile()));
+                removed.clear();
+            }
+            batch.remove(removed, outputDir, options);
+            int failures = batch.run(sources, outputDir, options);
+            if (failures > 0) {
+                throw new GradleException("Failed to generate " + failures + " of " + sources.size() + " test files");
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.testgenie.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+
+/**
+ * Adds the {@code generateTestStubs} task to Java projects.
+ *
+ * The task generates test classes for the main Java sources into {@code build/generated/testgenie}.
+ * Further tasks of type {@link GenerateTestsTask} can be registered for other sources.
+ */
+public class TestGeniePlugin implements Plugin<Project> {
+    public static final String TASK_NAME = "generateTestStubs";
+
+    @Override
+    public void apply(Project project) {
+        project.getPluginManager().withPlugin("java", java -> {
+            SourceSet main = project.getExtensions().getByType(SourceSetContainer.class)
+                    .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            project.getTasks().register(TASK_NAME, GenerateTestsTask.class, task -> {
+                task.setGroup("build");
+                task.setDescription("Generates JUnit 5 test stubs for the main Java sources.");
+                task.getSource().from(main.getJava());
+                task.getOutputDir().convention(project.getLayout().getBuildDirectory().dir("generated/testgenie"));
+            });
+        });
+    }
+}
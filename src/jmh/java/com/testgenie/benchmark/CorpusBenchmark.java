@@ -0,0 +1,70 @@
+package com.testgenie.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.testgenie.GenerationOptions;
+import com.testgenie.JavaFileParser;
+import com.testgenie.ScenarioVisitor;
+import com.testgenie.TestGenerator;
+import com.testgenie.model.Scenario;
+import com.testgenie.model.SourceModel;
+import com.testgenie.model.TypeModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each stage of generation in isolation on one source file:
+ * - parse: source text to SourceModel, including detection.
+ * - detect: ScenarioVisitor over every method of an already parsed file.
+ * - render: the first type of the SourceModel streamed through the templates to a null Writer.
+ *
+ * Subclasses choose the source file in their own @Setup and pass it to {@link #load(Path, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class CorpusBenchmark {
+    private final TestGenerator generator = new TestGenerator();
+    private final GenerationOptions options = new GenerationOptions(Set.of(), Set.of());
+
+    private Path path;
+    private String content;
+    private List<MethodDeclaration> methods;
+    private TypeModel type;
+
+    protected void load(Path path, String content) {
+        this.path = path;
+        this.content = content;
+        this.methods = StaticJavaParser.parse(content).findAll(MethodDeclaration.class);
+        this.type = JavaFileParser.parse(path, content).orElseThrow().types().get(0);
+    }
+
+    @Benchmark
+    public Optional<SourceModel> parse() {
+        return JavaFileParser.parse(path, content);
+    }
+
+    @Benchmark
+    public void detect(Blackhole blackhole) {
+        for (MethodDeclaration method : methods) {
+            blackhole.consume(ScenarioVisitor.detect(method));
+        }
+    }
+
+    @Benchmark
+    public Map<Scenario, Integer> render() throws IOException {
+        return generator.render(type, options, Writer.nullWriter());
+    }
+}
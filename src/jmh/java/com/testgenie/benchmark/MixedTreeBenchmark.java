@@ -0,0 +1,142 @@
+package com.testgenie.benchmark;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.testgenie.JavaFileParser;
+import com.testgenie.SourcePrefilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a tree shaped like a production source set, where many files cannot produce a test stub:
+ * package-info and module-info files, and classes without any public method. Some of the classes use
+ * Java 17 syntax: records, arrow-form switches and switch expressions with yield.
+ *
+ * - defaultConfiguration: a JavaParser with the default ParserConfiguration at the JAVA_17 level parses every file.
+ * - tunedConfiguration: the JavaFileParser configuration parses every file.
+ * - tunedPrefiltered: the SourcePrefilter drops files first, the rest are parsed as in the batch run.
+ *
+ * Every variant builds the SourceModel of each parsed file, so the results differ only in parsing cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixedTreeBenchmark {
+
+    /**
+     * The percentage of files in the tree that cannot produce a stub.
+     */
+    @Param({"20", "50"})
+    public int unusablePercent;
+
+    private final JavaParser defaultParser = new JavaParser(new ParserConfiguration()
+            .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17));
+    private final List<Path> paths = new ArrayList<>();
+    private final List<String> contents = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        for (String sample : List.of("samples/BankAccount.java", "samples/Calculator.java", "samples/StringUtils.java")) {
+            add(Path.of(sample), Files.readString(Path.of(sample)));
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i >= unusablePercent && i % 5 == 0) {
+                add(Path.of("bench/Modern" + i + ".java"), modernClass(i));
+            } else if (i >= unusablePercent) {
+                add(Path.of("bench/Service" + i + ".java"), SyntheticSource.generate(20, 6, 1));
+            } else if (i == 0) {
+                add(Path.of("bench/module-info.java"), "module bench {\n    exports bench;\n}\n");
+            } else if (i % 10 == 0) {
+                add(Path.of("bench/p" + i + "/package-info.java"), "/** Package " + i + ". */\npackage bench.p" + i + ";\n");
+            } else {
+                add(Path.of("bench/Internal" + i + ".java"), internalClass(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void defaultConfiguration(Blackhole blackhole) {
+        for (int i = 0; i < paths.size(); i++) {
+            ParseResult<CompilationUnit> result = defaultParser.parse(contents.get(i));
+            if (!result.isSuccessful()) throw new ParseProblemException(result.getProblems());
+            CompilationUnit compUnit = result.getResult().orElseThrow();
+            blackhole.consume(JavaFileParser.analyze(paths.get(i), compUnit));
+        }
+    }
+
+    @Benchmark
+    public void tunedConfiguration(Blackhole blackhole) {
+        for (int i = 0; i < paths.size(); i++) {
+            blackhole.consume(JavaFileParser.analyze(paths.get(i), JavaFileParser.parseUnit(contents.get(i))));
+        }
+    }
+
+    @Benchmark
+    public void tunedPrefiltered(Blackhole blackhole) {
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            String content = contents.get(i);
+            if (SourcePrefilter.isDescriptor(path) || !SourcePrefilter.mayHavePublicMethods(content)) continue;
+            blackhole.consume(JavaFileParser.analyze(path, JavaFileParser.parseUnit(content)));
+        }
+    }
+
+    private void add(Path path, String content) {
+        paths.add(path);
+        contents.add(content);
+    }
+
+    /**
+     * A public class using Java 17 syntax in its method bodies and a nested record.
+     */
+    private static String modernClass(int index) {
+        StringBuilder src = new StringBuilder("package bench;\n\n")
+                .append("public class Modern").append(index).append(" {\n")
+                .append("    public record Range(int from, int to) {\n    }\n\n");
+        for (int m = 0; m < 10; m++) {
+            src.append("    public int size").append(m).append("(Range range, String unit) {\n")
+                    .append("        if (range == null) return 0;\n")
+                    .append("        int scale = switch (unit) {\n")
+                    .append("            case \"k\", \"K\" -> 1000;\n")
+                    .append("            default -> {\n")
+                    .append("                yield unit.isEmpty() ? 1 : ").append(m + 2).append(";\n")
+                    .append("            }\n")
+                    .append("        };\n")
+                    .append("        return (range.to() - range.from()) * scale;\n")
+                    .append("    }\n\n");
+        }
+        return src.append("}\n").toString();
+    }
+
+    /**
+     * A package-private helper class with documented members, as found next to the public API of a package.
+     */
+    private static String internalClass(int index) {
+        StringBuilder src = new StringBuilder("package bench;\n\n")
+                .append("/**\n * Internal helper, not part of the public API.\n */\n")
+                .append("final class Internal").append(index).append(" {\n")
+                .append("    private final StringBuilder buffer = new StringBuilder(\"public\");\n\n");
+        for (int m = 0; m < 20; m++) {
+            src.append("    // Appends part ").append(m).append(", never exposed as a public method\n")
+                    .append("    int append").append(m).append("(String value) {\n")
+                    .append("        if (value == null) return -1;\n")
+                    .append("        buffer.append(value).append(").append(m).append(");\n")
+                    .append("        return buffer.length();\n")
+                    .append("    }\n\n");
+        }
+        return src.append("}\n").toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.testgenie.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.testgenie.JavaFileParser;
+import com.testgenie.model.SourceModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-parse SourceModel against parsing the same file three times,
+ * which is what generating one test class used to cost.
+ *
+ * Run with: gradle jmh (the gc profiler reports allocation per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * A path to a source file, or "large" for a synthetic class with a few hundred methods.
+     */
+    @Param({"samples/BankAccount.java", "samples/StringUtils.java", "large"})
+    public String source;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (source.equals("large")) {
+            Path tmp = Files.createTempFile("LargeSource", ".java");
+            Files.writeString(tmp, SyntheticSource.generate(400, 3, 0));
+            tmp.toFile().deleteOnExit();
+            file = tmp.toFile();
+        } else {
+            file = new File(source);
+        }
+    }
+
+    @Benchmark
+    public Optional<SourceModel> singleParse() {
+        return JavaFileParser.parse(file);
+    }
+
+    @Benchmark
+    public CompilationUnit[] tripleParse() throws IOException {
+        return new CompilationUnit[] {
+                StaticJavaParser.parse(file),
+                StaticJavaParser.parse(file),
+                StaticJavaParser.parse(file)
+        };
+    }
+}
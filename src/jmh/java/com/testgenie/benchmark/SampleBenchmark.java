@@ -0,0 +1,23 @@
+package com.testgenie.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the stage benchmarks against the classes in samples/.
+ */
+public class SampleBenchmark extends CorpusBenchmark {
+
+    @Param({"samples/BankAccount.java", "samples/Calculator.java", "samples/StringUtils.java"})
+    public String source;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path path = Path.of(source);
+        load(path, Files.readString(path));
+    }
+}
@@ -0,0 +1,89 @@
+package com.testgenie.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time from starting a launcher of the installed distribution until the test class
+ * of a single source exists, the cost of running TestGenie from a pre-commit hook.
+ *
+ * - TestGenie: the regular start script.
+ * - TestGenie-fast: the fast-start launcher with its class-data-sharing archive, created by the first
+ *   warmup invocation if installDist did not create it.
+ *
+ * Every invocation starts a new JVM, so this depends on build/install/TestGenie, which the jmh task installs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    private static final Path INSTALL_DIR = Path.of("build/install/TestGenie");
+    private static final Path SOURCE = Path.of("samples/StringUtils.java");
+
+    @Param({"TestGenie", "TestGenie-fast"})
+    public String launcher;
+
+    private Path outputDir;
+    private Path testFile;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path script = INSTALL_DIR.resolve("bin").resolve(launcher);
+        if (!Files.isExecutable(script)) {
+            throw new IllegalStateException("Run installDist first, " + script + " does not exist");
+        }
+        outputDir = Files.createTempDirectory("testgenie-startup");
+        testFile = outputDir.resolve("StringUtilsTest.java");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOutput() throws IOException {
+        clear(outputDir);
+    }
+
+    @Benchmark
+    public void timeToFirstFile() throws IOException, InterruptedException {
+        process = new ProcessBuilder(INSTALL_DIR.resolve("bin").resolve(launcher).toString(),
+                "--input", SOURCE.toString(), "--output", outputDir.toString())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        // Polling every millisecond is well below the resolution that matters for JVM startup
+        while (!Files.exists(testFile)) {
+            if (!process.isAlive() && !Files.exists(testFile)) {
+                throw new IllegalStateException(launcher + " exited with " + process.exitValue() + " without writing " + testFile);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitExit() throws InterruptedException {
+        // The JVM shutting down, or the fast launcher dumping its archive, is not part of the time to the first file
+        process.waitFor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        clear(outputDir);
+        Files.deleteIfExists(outputDir);
+    }
+
+    private static void clear(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                if (!file.equals(dir)) Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.testgenie.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.nio.file.Path;
+
+/**
+ * Runs the stage benchmarks against generated classes, to show how each stage scales
+ * with the number of methods, the length of each method and how deeply it is nested.
+ */
+public class SyntheticBenchmark extends CorpusBenchmark {
+
+    @Param({"10", "500"})
+    public int methodCount;
+
+    @Param({"5", "60"})
+    public int methodLength;
+
+    @Param({"0", "8"})
+    public int nestingDepth;
+
+    @Setup
+    public void setUp() {
+        load(Path.of("Synthetic.java"), SyntheticSource.generate(methodCount, methodLength, nestingDepth));
+    }
+}
@@ -0,0 +1,52 @@
+package com.testgenie.benchmark;
+
+/**
+ * Generates Java classes of a controlled shape for the benchmarks.
+ *
+ * Every method mixes the constructs ScenarioVisitor looks for (null checks, throws,
+ * conditionals, Optional calls, boolean returns and assignments), so detection and
+ * emission do real work regardless of the chosen size.
+ */
+final class SyntheticSource {
+
+    private SyntheticSource() {
+    }
+
+    /**
+     * @param methodCount  The number of public methods in the class.
+     * @param methodLength The number of statements in each method body.
+     * @param nestingDepth How deeply the statements of each method are nested in if blocks.
+     */
+    static String generate(int methodCount, int methodLength, int nestingDepth) {
+        StringBuilder src = new StringBuilder("package bench;\n\nimport java.util.Optional;\n\n")
+                .append("public class Synthetic {\n")
+                .append("    private int counter;\n")
+                .append("    private String name;\n\n");
+
+        for (int m = 0; m < methodCount; m++) {
+            src.append("    public boolean method").append(m).append("(String value, int limit) {\n");
+            String indent = "        ";
+            src.append(indent).append("if (value == null) throw new IllegalArgumentException(\"value\");\n");
+
+            for (int d = 0; d < nestingDepth; d++) {
+                src.append(indent).append("if (limit > ").append(d).append(") {\n");
+                indent += "    ";
+            }
+            for (int s = 0; s < methodLength; s++) {
+                switch (s % 3) {
+                    case 0 -> src.append(indent).append("counter += value.length() * ").append(s).append(";\n");
+                    case 1 -> src.append(indent).append("name = Optional.ofNullable(value).orElse(\"s").append(s).append("\");\n");
+                    default -> src.append(indent).append("if (counter > limit) return counter % 2 == 0;\n");
+                }
+            }
+            for (int d = nestingDepth; d > 0; d--) {
+                indent = indent.substring(4);
+                src.append(indent).append("}\n");
+            }
+
+            src.append(indent).append("return false;\n")
+                    .append("    }\n\n");
+        }
+        return src.append("}\n").toString();
+    }
+}
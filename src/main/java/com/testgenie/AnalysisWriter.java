@@ -0,0 +1,100 @@
+package com.testgenie;
+
+import com.testgenie.model.MethodModel;
+import com.testgenie.model.Scenario;
+import com.testgenie.model.TypeModel;
+import com.testgenie.model.TypeRef;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.testgenie.utils.StringUtil.escapeJson;
+
+/**
+ * AnalysisWriter streams the detected scenarios as newline-delimited JSON, for --emit analysis.
+ *
+ * Every public method becomes one line, e.g.
+ * {"source":"samples/StringUtils.java","package":"samples","type":"StringUtils","method":"capitalize",
+ * "parameters":["String"],"scenarios":["nulls","conditionals","optionals"]}
+ * A method without any enabled scenario still gets a line, with an empty "scenarios" array.
+ *
+ * The lines of a type are written together and flushed right away, so a consumer reading the stream
+ * sees each file as soon as it is analyzed. Files are analyzed concurrently and appear in any order.
+ */
+public class AnalysisWriter implements Closeable {
+    private final Writer out;
+    private final boolean closeOut;
+
+    private AnalysisWriter(Writer out, boolean closeOut) {
+        this.out = out;
+        this.closeOut = closeOut;
+    }
+
+    /**
+     * Writes to standard output, which stays open when this writer is closed.
+     */
+    public static AnalysisWriter toStandardOutput() {
+        return new AnalysisWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), false);
+    }
+
+    /**
+     * Writes to a file, replacing it if it exists.
+     */
+    public static AnalysisWriter toFile(Path file) throws IOException {
+        return new AnalysisWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Writes one line per public method of a type and flushes them.
+     *
+     * @param source  The source file the type was parsed from.
+     * @param type    The analysis model of the type.
+     * @param options The flags controlling which scenarios are reported.
+     */
+    public void write(Path source, TypeModel type, GenerationOptions options) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        String prefix = "{\"source\":\"" + escapeJson(Archives.location(source))
+                + "\",\"package\":\"" + escapeJson(type.packageName())
+                + "\",\"type\":\"" + escapeJson(type.name()) + "\"";
+        for (MethodModel method : type.methods()) {
+            if (!method.isPublic()) continue;
+
+            lines.append(prefix).append(",\"method\":\"").append(escapeJson(method.name())).append("\",\"parameters\":[");
+            String separator = "";
+            for (TypeRef parameter : method.parameters()) {
+                lines.append(separator).append('"').append(escapeJson(parameter.name())).append('"');
+                separator = ",";
+            }
+            lines.append("],\"scenarios\":[");
+            int scenarios = options.filter(method.scenarios());
+            separator = "";
+            for (Scenario scenario : Scenario.values()) {
+                if (!scenario.isIn(scenarios)) continue;
+                lines.append(separator).append('"').append(scenario.flag()).append('"');
+                separator = ",";
+            }
+            lines.append("]}\n");
+        }
+        if (lines.isEmpty()) return;
+
+        // One write per type keeps its lines together when several parser threads write at once
+        synchronized (out) {
+            out.write(lines.toString());
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            if (closeOut) out.close();
+            else out.flush();
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package com.testgenie;
 
+import com.testgenie.model.Scenario;
+import com.testgenie.resolve.TypeIndex;
+import com.testgenie.stats.RunStats;
+import com.testgenie.template.TemplateSet;
 import picocli.CommandLine;
 
 import java.io.File;
-import java.util.HashSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,47 +27,268 @@ import java.util.logging.Logger;
 )
 public class App implements Callable<Integer> {
     private static final Logger logger = Logger.getLogger(App.class.getName());
+    private static final int ERROR = 1;
+    private static final int SUCCESS = 0;
 
-    @CommandLine.Option(names = {"-i", "--input"}, description = "Path to Java source file", required = true)
-    private File inputFile;
+    @CommandLine.Option(
+            names = {"-i", "--input"},
+            description = "Java source files, directories, globs or source JAR/ZIP archives. Can be repeated",
+            required = true,
+            arity = "1..*"
+    )
+    private final List<String> inputs = new ArrayList<>();
+
+    @CommandLine.Option(
+            names = {"-o", "--output"},
+            description = "Output directory for generated test class, or a .jar/.zip archive to write them to (default: output). "
+                    + "With --emit analysis, the file to write to, or - for standard output (default: -)"
+    )
+    private String outputDir;
 
-    @CommandLine.Option(names = {"-o", "--output"}, description = "Output directory for generated test class")
-    private String outputDir = "output";
+    @CommandLine.Option(
+            names = {"--emit"},
+            description = "What to produce: tests, or analysis for one JSON line per public method with its detected scenarios (default: tests)"
+    )
+    private Emit emit = Emit.TESTS;
 
     @CommandLine.Option(
             names = {"-f", "--flag"},
-            description = "Flags to filter which test stubs are generated",
-            split = ","
+            description = "Flags to filter which test stubs are generated: ${COMPLETION-CANDIDATES}",
+            split = ",",
+            converter = ScenarioConverter.class,
+            completionCandidates = ScenarioFlags.class
     )
-    private final Set<String> flags = new HashSet<>();
+    private final Set<Scenario> flags = EnumSet.noneOf(Scenario.class);
 
     @CommandLine.Option(
             names = {"--ignore"},
             description = "Flags to ignore which test stubs are generated",
-            split = ","
+            split = ",",
+            converter = ScenarioConverter.class,
+            completionCandidates = ScenarioFlags.class
+    )
+    private final Set<Scenario> ignore = EnumSet.noneOf(Scenario.class);
+
+    @CommandLine.Option(
+            names = {"-t", "--threads"},
+            description = "Number of worker threads used to process input files (default: available processors)"
+    )
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(
+            names = {"--max-in-flight"},
+            description = "Maximum number of input files held in memory at the same time (default: 4 per thread)"
+    )
+    private Integer maxInFlight;
+
+    @CommandLine.Option(
+            names = {"--max-file-size"},
+            description = "Skip input files larger than this many bytes (default: no limit)"
+    )
+    private long maxFileBytes;
+
+    @CommandLine.Option(
+            names = {"--max-ast-nodes"},
+            description = "Skip input files whose syntax tree has more nodes than this (default: no limit)"
+    )
+    private long maxAstNodes;
+
+    @CommandLine.Option(
+            names = {"--file-timeout"},
+            description = "Reject input files that spend more than this many milliseconds being parsed, detected and rendered. "
+                    + "Checked during the parse and before each class is detected and rendered, a class already being "
+                    + "detected or rendered is finished first (default: no limit)"
     )
-    private final Set<String> ignore = new HashSet<>();
+    private long fileTimeoutMillis;
+
+    @CommandLine.Option(
+            names = {"-w", "--watch"},
+            description = "Keep running and regenerate test files whenever the input sources change"
+    )
+    private boolean watch;
+
+    @CommandLine.Option(
+            names = {"--debounce"},
+            description = "Milliseconds the inputs must be quiet before --watch regenerates (default: ${DEFAULT-VALUE})"
+    )
+    private long debounceMillis = 100;
+
+    @CommandLine.Option(
+            names = {"--stats"},
+            description = "Write a JSON report with per-phase timings, percentiles and the slowest files"
+    )
+    private Path statsFile;
+
+    @CommandLine.Option(
+            names = {"--merge"},
+            description = "Add missing test stubs to existing test classes instead of overwriting them"
+    )
+    private boolean merge;
+
+    @CommandLine.Option(
+            names = {"--resolve"},
+            description = "Resolve field and parameter types against the JDK and --classpath for typed arguments and mocks"
+    )
+    private boolean resolve;
+
+    @CommandLine.Option(
+            names = {"--verify"},
+            description = "Compile the generated test classes against --classpath, which has to include JUnit 5 and Mockito"
+    )
+    private boolean verify;
+
+    @CommandLine.Option(
+            names = {"--classpath"},
+            description = "Jars and class directories to resolve types from, separated by the path separator. Implies --resolve"
+    )
+    private String classpath;
+
+    @CommandLine.Option(
+            names = {"--templates"},
+            description = "Directory with <name>.tmpl files overriding the built-in stub templates"
+    )
+    private Path templatesDir;
+
+    /**
+     * What a run produces, selected with --emit.
+     */
+    enum Emit {
+        TESTS,
+        ANALYSIS
+    }
+
+    /**
+     * Resolves --flag and --ignore values to scenarios while the command line is parsed, so unknown flags are rejected.
+     */
+    static class ScenarioConverter implements CommandLine.ITypeConverter<Scenario> {
+        @Override
+        public Scenario convert(String value) {
+            try {
+                return Scenario.fromFlag(value);
+            } catch (IllegalArgumentException e) {
+                throw new CommandLine.TypeConversionException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The flag names listed in the --help output.
+     */
+    static class ScenarioFlags implements Iterable<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.stream(Scenario.values()).map(Scenario::flag).iterator();
+        }
+    }
 
     public static void main(String[] args) {
-        int exitCode = new CommandLine(new App()).execute(args);
+        int exitCode = new CommandLine(new App()).setCaseInsensitiveEnumValuesAllowed(true).execute(args);
         System.exit(exitCode);
     }
 
     @Override
     public Integer call() {
-        final int ERROR = 1;
-        final int SUCCESS = 0;
+        // Closing the archives writes the output archive, so a failure to close fails the run
+        try (Archives archives = new Archives()) {
+            return generate(archives);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            return ERROR;
+        }
+    }
+
+    private int generate(Archives archives) {
+        List<Path> sources;
+        try {
+            sources = SourceDiscovery.discover(inputs, archives);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            return ERROR;
+        }
+
+        if (sources.isEmpty()) {
+            logger.log(Level.SEVERE, "No Java source files found in: {0}", inputs);
+            return ERROR;
+        }
+
+        if (threads < 1) {
+            logger.log(Level.SEVERE, "Invalid thread count: {0}", threads);
+            return ERROR;
+        }
 
-        if (!inputFile.exists() || !inputFile.isFile()) {
-            logger.log(Level.SEVERE, "Invalid input file: {0}", inputFile);
+        if (maxInFlight == null) {
+            maxInFlight = BatchGenerator.defaultMaxInFlight(threads);
+        } else if (maxInFlight < 1) {
+            logger.log(Level.SEVERE, "Invalid in-flight limit: {0}", maxInFlight);
             return ERROR;
         }
 
-        TestGenerator generator = new TestGenerator();
+        FileLimits limits;
+        try {
+            limits = new FileLimits(maxFileBytes, maxAstNodes, fileTimeoutMillis);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            return ERROR;
+        }
 
+        TemplateSet templates;
         try {
-            // This method will generate the test class and write the file to outputDir
-            generator.generateTestFile(inputFile, outputDir, flags, ignore);
+            templates = templatesDir == null ? TemplateSet.defaults() : TemplateSet.load(templatesDir);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "Invalid templates: {0}", e.getMessage());
+            return ERROR;
+        }
+
+        TypeIndex types;
+        try {
+            types = resolve || classpath != null ? TypeIndex.of(classpathEntries()) : TypeIndex.disabled();
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.SEVERE, e.getMessage());
+            return ERROR;
+        }
+
+        RunStats stats = statsFile == null ? RunStats.disabled() : RunStats.reportingTo(statsFile);
+        BatchGenerator batch = new BatchGenerator(new TestGenerator(templates, merge), threads, maxInFlight, types,
+                limits, stats);
+        GenerationOptions options = new GenerationOptions(flags, ignore);
+
+        if (emit == Emit.ANALYSIS) {
+            if (watch || merge || verify) {
+                logger.log(Level.SEVERE, "--emit analysis cannot be combined with --watch, --merge or --verify");
+                return ERROR;
+            }
+            return analyze(sources, batch, options, types);
+        }
+
+        if (outputDir == null) outputDir = "output";
+        Path outDir = Path.of(outputDir);
+        if (Archives.isArchive(outDir)) {
+            if (watch) {
+                logger.log(Level.SEVERE, "--watch cannot write to an output archive: {0}", outputDir);
+                return ERROR;
+            }
+            try {
+                outDir = archives.create(outDir);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Invalid output archive {0}: {1}", new Object[]{outputDir, e.getMessage()});
+                return ERROR;
+            }
+        }
+
+        try (types) {
+            // This will generate the test classes and write the files to outputDir
+            int failures = batch.run(sources, outDir, options);
+            boolean compiles = !verify || verify(outDir);
+            if (watch) {
+                // Failures are logged; keep watching so they can be fixed without restarting
+                new SourceWatcher(inputs, sources, archives, batch, outputDir, options, debounceMillis).watch();
+                return SUCCESS;
+            }
+            if (failures > 0) {
+                logger.log(Level.SEVERE, "Failed to generate {0} of {1} test files", new Object[]{failures, sources.size()});
+                return ERROR;
+            }
+            if (!compiles) return ERROR;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to generate test file: {0}", e.getMessage());
             return ERROR;
@@ -64,4 +296,52 @@ public class App implements Callable<Integer> {
 
         return SUCCESS;
     }
+
+    /**
+     * Streams the analysis of every source to --output, or to standard output.
+     */
+    private int analyze(List<Path> sources, BatchGenerator batch, GenerationOptions options, TypeIndex types) {
+        boolean toStandardOutput = outputDir == null || outputDir.equals("-");
+        try (types; AnalysisWriter out = toStandardOutput ? AnalysisWriter.toStandardOutput()
+                : AnalysisWriter.toFile(Path.of(outputDir))) {
+            int failures = batch.analyze(sources, out, options);
+            if (failures > 0) {
+                logger.log(Level.SEVERE, "Failed to analyze {0} of {1} source files", new Object[]{failures, sources.size()});
+                return ERROR;
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed to analyze source files: {0}", e.getMessage());
+            return ERROR;
+        }
+        return SUCCESS;
+    }
+
+    /**
+     * Compiles the test classes in the output directory and logs every compile error by stub.
+     *
+     * @return Whether every test class compiles.
+     */
+    private boolean verify(Path outDir) throws IOException {
+        long start = System.nanoTime();
+        List<TestVerifier.Problem> problems = new TestVerifier(classpathEntries()).verify(outDir);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        for (TestVerifier.Problem problem : problems) {
+            logger.log(Level.SEVERE, "Does not compile: {0}", problem);
+        }
+        if (problems.isEmpty()) {
+            logger.log(Level.INFO, "Verified the generated test classes compile in {0} ms", millis);
+        } else {
+            logger.log(Level.SEVERE, "Found {0} compile errors in the generated test classes in {1} ms",
+                    new Object[]{problems.size(), millis});
+        }
+        return problems.isEmpty();
+    }
+
+    private List<Path> classpathEntries() {
+        if (classpath == null || classpath.isBlank()) return List.of();
+        return Arrays.stream(classpath.split(File.pathSeparator))
+                .filter(entry -> !entry.isBlank())
+                .map(Path::of)
+                .toList();
+    }
 }
@@ -0,0 +1,97 @@
+package com.testgenie;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Archives opens source JARs and ZIP files, and an optional output archive, as NIO zip file systems.
+ *
+ * Entries are read and written through the returned paths like any other file, so sources stream from
+ * the archive straight into the parser and test classes never touch the disk before the archive is written.
+ * An output archive is only written when it is closed, which makes it all-or-nothing.
+ *
+ * One instance is created per run and closed at its end. Every archive is opened once, however often it is given.
+ */
+public final class Archives implements AutoCloseable {
+    private final Map<Path, FileSystem> fileSystems = new LinkedHashMap<>();
+
+    /**
+     * Whether a path names a JAR or ZIP archive rather than a directory or source file.
+     */
+    public static boolean isArchive(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) return false;
+        String name = fileName.toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    /**
+     * The name of a path that tells the entries of different archives apart,
+     * e.g. {@code jar:file:///libs/foo-sources.jar!/com/foo/Bar.java} for an archive entry.
+     * A path on the default file system is returned as it is.
+     */
+    public static String location(Path path) {
+        return path.getFileSystem() == FileSystems.getDefault() ? path.toString() : path.toUri().toString();
+    }
+
+    /**
+     * Opens an existing archive for reading.
+     *
+     * @return The root directory of the archive.
+     * @throws IOException If the file does not exist or is not a valid archive.
+     */
+    public synchronized Path open(Path archive) throws IOException {
+        Path key = archive.toAbsolutePath().normalize();
+        FileSystem fileSystem = fileSystems.get(key);
+        if (fileSystem == null) {
+            fileSystem = FileSystems.newFileSystem(key);
+            fileSystems.put(key, fileSystem);
+        }
+        return fileSystem.getPath("/");
+    }
+
+    /**
+     * Opens an archive to write to, creating it and its parent directories if needed.
+     * Entries of an existing archive are kept, so an output archive supports incremental runs like a directory.
+     *
+     * @return The root directory of the archive.
+     * @throws IOException If the archive cannot be created or is not a valid archive.
+     */
+    public synchronized Path create(Path archive) throws IOException {
+        Path key = archive.toAbsolutePath().normalize();
+        FileSystem fileSystem = fileSystems.get(key);
+        if (fileSystem == null) {
+            if (key.getParent() != null) Files.createDirectories(key.getParent());
+            fileSystem = FileSystems.newFileSystem(key, Map.of("create", "true"));
+            fileSystems.put(key, fileSystem);
+        }
+        return fileSystem.getPath("/");
+    }
+
+    /**
+     * Closes every archive, which writes the output archive.
+     *
+     * @throws IOException If an archive could not be written. The other archives are still closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<Path, FileSystem> entry : fileSystems.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                IOException error = new IOException("Could not write archive " + entry.getKey() + ": " + e.getMessage(), e);
+                if (failure == null) failure = error;
+                else failure.addSuppressed(error);
+            }
+        }
+        fileSystems.clear();
+        if (failure != null) throw failure;
+    }
+}
@@ -0,0 +1,785 @@
+package com.testgenie;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.testgenie.model.TypeModel;
+import com.testgenie.resolve.TypeIndex;
+import com.testgenie.resolve.TypeResolver;
+import com.testgenie.stats.FileStats;
+import com.testgenie.stats.Phase;
+import com.testgenie.stats.RunStats;
+import com.testgenie.utils.HashUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * BatchGenerator generates test classes for many source files in one JVM.
+ *
+ * Sources flow through a staged pipeline, each stage running on its own thread pool:
+ * - read: the source is read, hashed and checked against the GenerationManifest and the SourcePrefilter.
+ * - parse: the source is parsed, then the scenarios of each of its types are detected.
+ *   The AST is released as soon as every type of the source is detected.
+ * - write: the test class of each type is rendered to a temporary file and committed.
+ *
+ * A source with several types fans out into one detect and one write task per type, so a single large file
+ * spreads over the worker threads instead of holding up one of them.
+ *
+ * At most maxInFlight sources are between the start of their read and the end of their last write at any time.
+ * Submitting a new source blocks until an earlier one is done, so the stage queues only ever hold the work
+ * of those sources and heap use depends on the limit and not on the size of the source tree.
+ *
+ * Sources finish in any order, so when two sources produce the same test class name a claim decides the owner:
+ * the later input wins, exactly as in a sequential run. Every source that loses a test class this way is
+ * logged as a warning, as its test class is not written.
+ *
+ * A source over one of the FileLimits is rejected without holding up the other sources: the size is checked
+ * before it is read, the AST nodes once it is parsed, and the time limit during the parse and before every type.
+ * A source is only charged for its own parse, detect and render time, not for waiting in a stage queue, and
+ * a run with a time limit warms up the parser and templates first so the first sources do not pay for it.
+ * Rejected and failed sources are listed with their reason once the run is done.
+ *
+ * Every source is timed per Phase and its FileStats are reported to the RunStats of the generator.
+ *
+ * For --emit analysis the same read and parse stages run without the manifest, and the model of each type
+ * is streamed to an AnalysisWriter instead of being rendered, so there is no write stage and no test file.
+ */
+public class BatchGenerator {
+    private static final Logger logger = Logger.getLogger(BatchGenerator.class.getName());
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    // Parsed, detected and rendered once before the first source of a timed run, so class loading and
+    // the first JIT compilations are not charged to it
+    private static final String WARM_UP_SOURCE = """
+            package warmup;
+
+            import java.util.List;
+            import java.util.Optional;
+
+            public class WarmUp {
+                private final List<String> names;
+
+                public WarmUp(List<String> names) {
+                    this.names = names;
+                }
+
+                public Optional<String> find(String prefix) {
+                    if (prefix == null || prefix.isEmpty()) {
+                        throw new IllegalArgumentException("prefix");
+                    }
+                    for (String name : names) {
+                        if (name.startsWith(prefix)) return Optional.of(name);
+                    }
+                    return names.stream().filter(name -> name.contains(prefix)).findFirst();
+                }
+            }
+            """;
+
+    private final TestGenerator generator;
+    private final int threads;
+    private final int maxInFlight;
+    private final TypeIndex types;
+    private final FileLimits limits;
+    private final RunStats stats;
+    private volatile boolean warmedUp;
+
+    /**
+     * A source that was read and has to be generated.
+     */
+    private record Source(int index, Path path, String content, String hash, FileStats stats) {
+    }
+
+    /**
+     * A parsed source whose types are detected and written as separate tasks.
+     * It does not hold the source code, and the last of its types to finish completes it.
+     */
+    private static final class Analyzed {
+        private final int index;
+        private final Path path;
+        private final String hash;
+        private final FileStats stats;
+        // The time spent parsing, detecting and rendering the source so far, for the time limit
+        private final AtomicLong spentNanos;
+        // The test class name of each type once it is written, null while pending or if it failed
+        private final String[] classNames;
+        private final AtomicInteger remaining;
+        // The first error of any of the types, decides whether the source failed or was rejected
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Analyzed(Source source, long spentNanos, int typeCount) {
+            this.index = source.index();
+            this.path = source.path();
+            this.hash = source.hash();
+            this.stats = source.stats();
+            this.spentNanos = new AtomicLong(spentNanos);
+            this.classNames = new String[typeCount];
+            this.remaining = new AtomicInteger(typeCount);
+        }
+
+        /**
+         * Adds the time since the given System.nanoTime() to the time spent on the source.
+         */
+        void charge(long startNanos) {
+            spentNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * The owner of a test class name so far.
+     */
+    private static final class Claim {
+        // The highest input index that produced or kept the test class, -1 if none yet
+        private int owner = -1;
+        // The source at that index, null if none yet
+        private Path ownerPath;
+        // Whether the test file was committed during this run
+        private boolean written;
+    }
+
+    /**
+     * @param generator The generator used to render each test class.
+     * @param threads   The maximum number of worker threads.
+     */
+    public BatchGenerator(TestGenerator generator, int threads) {
+        this(generator, threads, RunStats.disabled());
+    }
+
+    /**
+     * @param generator The generator used to render each test class.
+     * @param threads   The maximum number of worker threads.
+     * @param stats     Collects the measurements of every processed source.
+     */
+    public BatchGenerator(TestGenerator generator, int threads, RunStats stats) {
+        this(generator, threads, defaultMaxInFlight(threads), TypeIndex.disabled(), stats);
+    }
+
+    /**
+     * @param generator   The generator used to render each test class.
+     * @param threads     The maximum number of parser threads.
+     * @param maxInFlight The maximum number of sources being processed at the same time.
+     * @param types       Resolves field and parameter types, shared by all parser threads.
+     * @param stats       Collects the measurements of every processed source.
+     */
+    public BatchGenerator(TestGenerator generator, int threads, int maxInFlight, TypeIndex types, RunStats stats) {
+        this(generator, threads, maxInFlight, types, FileLimits.none(), stats);
+    }
+
+    /**
+     * @param generator   The generator used to render each test class.
+     * @param threads     The maximum number of parser threads.
+     * @param maxInFlight The maximum number of sources being processed at the same time.
+     * @param types       Resolves field and parameter types, shared by all parser threads.
+     * @param limits      The size and time limits of a single source.
+     * @param stats       Collects the measurements of every processed source.
+     */
+    public BatchGenerator(TestGenerator generator, int threads, int maxInFlight, TypeIndex types, FileLimits limits,
+                          RunStats stats) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+        }
+        this.generator = generator;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+        this.types = types;
+        this.limits = limits;
+        this.stats = stats;
+    }
+
+    /**
+     * The in-flight limit used when none is given, enough to keep every stage busy.
+     */
+    public static int defaultMaxInFlight(int threads) {
+        return threads * IN_FLIGHT_PER_THREAD;
+    }
+
+    /**
+     * Generates and writes the test classes for all sources that changed since the last run.
+     *
+     * @param sources   The Java source files to process.
+     * @param outputDir The output directory to write the test files to.
+     * @param options   The flags controlling which test stubs are generated.
+     * @return The number of sources that did not produce a test class.
+     */
+    public int run(List<Path> sources, String outputDir, GenerationOptions options) throws InterruptedException {
+        return run(sources, Path.of(outputDir), options);
+    }
+
+    /**
+     * Generates and writes the test classes for all sources that changed since the last run.
+     *
+     * @param sources   The Java source files to process.
+     * @param outDir    The output directory to write the test files to, which can be the root of an output archive.
+     * @param options   The flags controlling which test stubs are generated.
+     * @return The number of sources that did not produce a test class.
+     */
+    public int run(List<Path> sources, Path outDir, GenerationOptions options) throws InterruptedException {
+        long start = System.nanoTime();
+        GenerationManifest manifest = GenerationManifest.load(outDir, fingerprint(options));
+        Run run = new Run(manifest, options, outDir, null);
+        try {
+            run.process(sources);
+
+            manifest.save();
+            run.summarize();
+            logger.log(Level.INFO, "Skipped {0} unchanged source files", run.count(FileStats.Status.SKIPPED));
+            int filtered = run.count(FileStats.Status.FILTERED);
+            if (filtered > 0) logger.log(Level.INFO, "Skipped {0} source files without public methods", filtered);
+            stats.report(System.nanoTime() - start);
+
+            return run.count(FileStats.Status.FAILED);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Batch generation failed: {0}", e.getMessage());
+            return sources.size();
+        } finally {
+            run.shutdown();
+        }
+    }
+
+    /**
+     * Detects the scenarios of every public method of all sources and streams them to an AnalysisWriter,
+     * without rendering or writing any test class. Every source is analyzed, whether it changed or not.
+     *
+     * @param sources   The Java source files to process.
+     * @param out       Receives the analysis of each type as soon as it is detected.
+     * @param options   The flags controlling which scenarios are detected.
+     * @return The number of sources that could not be analyzed.
+     */
+    public int analyze(List<Path> sources, AnalysisWriter out, GenerationOptions options) throws InterruptedException {
+        long start = System.nanoTime();
+        Run run = new Run(null, options, null, out);
+        try {
+            run.process(sources);
+
+            run.summarize();
+            int filtered = run.count(FileStats.Status.FILTERED);
+            if (filtered > 0) logger.log(Level.INFO, "Skipped {0} source files without public methods", filtered);
+            stats.report(System.nanoTime() - start);
+
+            return run.count(FileStats.Status.FAILED);
+        } finally {
+            run.shutdown();
+        }
+    }
+
+    /**
+     * Forgets sources that were deleted since the last run and deletes their test files. A remaining source
+     * with the same test class name as a deleted one is generated again by the next run that includes it.
+     *
+     * @param sources   The deleted Java source files.
+     * @param outDir    The output directory the test files were written to.
+     * @param options   The flags the test files were generated with.
+     * @return The number of test files deleted.
+     */
+    public int remove(List<Path> sources, Path outDir, GenerationOptions options) throws IOException {
+        if (sources.isEmpty()) return 0;
+        GenerationManifest manifest = GenerationManifest.load(outDir, fingerprint(options));
+        int deleted = 0;
+        for (Path source : sources) {
+            for (String testClassName : manifest.remove(source)) {
+                if (Files.deleteIfExists(outDir.resolve(testClassName + ".java"))) deleted++;
+            }
+        }
+        manifest.save();
+        logger.log(Level.INFO, "Deleted {0} test files of removed sources", deleted);
+        return deleted;
+    }
+
+    /**
+     * Runs a small source through the parse, detect and render phases once, without writing anything.
+     */
+    private void warmUp(GenerationOptions options) {
+        if (warmedUp) return;
+        CompilationUnit compUnit = JavaFileParser.parseUnit(WARM_UP_SOURCE);
+        TypeResolver resolver = types.resolverFor(compUnit);
+        for (ClassOrInterfaceDeclaration declaration : JavaFileParser.testableTypes(compUnit)) {
+            TypeModel type = JavaFileParser.analyze(declaration, options.mask(), resolver);
+            try {
+                generator.render(type, options, Writer.nullWriter());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        warmedUp = true;
+    }
+
+    /**
+     * Whether the manifest of an output directory records every one of the given sources, so that
+     * {@link #remove(List, Path, GenerationOptions)} finds their test files.
+     *
+     * @param sources   The Java source files.
+     * @param outDir    The output directory the test files were written to.
+     * @param options   The flags the test files were generated with.
+     */
+    public boolean isRecorded(List<Path> sources, Path outDir, GenerationOptions options) {
+        if (sources.isEmpty()) return true;
+        GenerationManifest manifest = GenerationManifest.load(outDir, fingerprint(options));
+        return sources.stream().allMatch(manifest::contains);
+    }
+
+    /**
+     * Everything besides the sources that affects the output, for the GenerationManifest.
+     */
+    private String fingerprint(GenerationOptions options) {
+        return options.fingerprint() + ";templates=" + generator.templates().fingerprint() + ";types=" + types.fingerprint();
+    }
+
+    /**
+     * The stages and shared state of one batch run.
+     */
+    private final class Run {
+        // Both null when the run streams its analysis instead of writing test classes
+        private final GenerationManifest manifest;
+        private final Path outputDir;
+        // Null when the run writes test classes
+        private final AnalysisWriter analysis;
+        private final GenerationOptions options;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final ExecutorService readers = stage("read", Math.max(1, threads / 2));
+        private final ExecutorService parsers = stage("parse", threads);
+        private final ExecutorService writers = stage("write", Math.max(1, threads / 2));
+        private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(FileStats.Status.values().length);
+        // Sources that were rejected or failed, for the summary
+        private final Queue<FileStats> notGenerated = new ConcurrentLinkedQueue<>();
+        // The input index of each source by its manifest key, to tell whether the writer of a test file comes later
+        private Map<String, Integer> inputIndexes = Map.of();
+
+        Run(GenerationManifest manifest, GenerationOptions options, Path outputDir, AnalysisWriter analysis) {
+            this.manifest = manifest;
+            this.options = options;
+            this.outputDir = outputDir;
+            this.analysis = analysis;
+        }
+
+        /**
+         * Submits every source in input order and waits until all of them are done.
+         */
+        void process(List<Path> sources) throws InterruptedException {
+            if (limits.limitsTime()) warmUp(options);
+            if (manifest != null) {
+                Map<String, Integer> indexes = new HashMap<>();
+                for (int i = 0; i < sources.size(); i++) {
+                    indexes.put(manifest.key(sources.get(i)), i);
+                }
+                inputIndexes = indexes;
+            }
+            for (int i = 0; i < sources.size(); i++) {
+                submit(i, sources.get(i));
+            }
+            await();
+        }
+
+        /**
+         * Starts processing a source, waiting while maxInFlight sources are already in the pipeline.
+         */
+        void submit(int index, Path source) throws InterruptedException {
+            inFlight.acquire();
+            FileStats fileStats = new FileStats(source);
+            execute(readers, () -> read(index, source, fileStats), e -> fail(fileStats, e));
+        }
+
+        /**
+         * Waits until every submitted source is done.
+         */
+        void await() throws InterruptedException {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+
+        int count(FileStats.Status status) {
+            return counts.get(status.ordinal());
+        }
+
+        void shutdown() {
+            readers.shutdownNow();
+            parsers.shutdownNow();
+            writers.shutdownNow();
+        }
+
+        /**
+         * Hashes a source and passes it on to be parsed, unless the manifest shows it is unchanged
+         * or the SourcePrefilter shows it has no public method.
+         */
+        private void read(int index, Path source, FileStats fileStats) {
+            if (SourcePrefilter.isDescriptor(source)) {
+                filtered(fileStats);
+                return;
+            }
+
+            byte[] content;
+            String hash;
+            try {
+                limits.checkBytes(Files.size(source));
+                FileStats.Timer read = fileStats.start(Phase.READ);
+                content = Files.readAllBytes(source);
+                hash = HashUtil.sha256(content);
+                read.stop();
+                fileStats.addBytesRead(content.length);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to read file: {0}", source);
+                failed(fileStats, "could not be read: " + e.getMessage());
+                return;
+            }
+
+            Optional<GenerationManifest.Entry> entry = manifest == null ? Optional.empty() : manifest.upToDate(source, hash);
+            if (entry.isPresent() && entry.get().testClassNames().stream().allMatch(name -> keep(name, index, source))) {
+                finish(fileStats, FileStats.Status.SKIPPED);
+                return;
+            }
+
+            String code = new String(content, StandardCharsets.UTF_8);
+            if (!SourcePrefilter.mayHavePublicMethods(code)) {
+                filtered(fileStats);
+                return;
+            }
+
+            execute(parsers, () -> parse(new Source(index, source, code, hash, fileStats)), e -> fail(fileStats, e));
+        }
+
+        /**
+         * Parses a source and passes each of its types on to be detected.
+         * The AST goes out of scope once the last type is detected.
+         */
+        private void parse(Source source) {
+            FileStats fileStats = source.stats();
+            long start = System.nanoTime();
+            long deadline = limits.deadline(start);
+            CompilationUnit compUnit;
+            FileStats.Timer parse = fileStats.start(Phase.PARSE);
+            try {
+                compUnit = limits.limitsTime()
+                        ? JavaFileParser.parseUnit(new DeadlineReader(source.content(), limits, deadline))
+                        : JavaFileParser.parseUnit(source.content());
+            } catch (ParseProblemException e) {
+                // The DeadlineReader aborted the parse
+                limits.checkDeadline(deadline);
+                logger.log(Level.SEVERE, "Failed to parse file: {0}", e.getMessage());
+                failed(fileStats, "does not parse: " + e.getMessage().lines().findFirst().orElse(""));
+                return;
+            } finally {
+                parse.stop();
+            }
+            limits.checkDeadline(deadline);
+            if (stats.isEnabled() || limits.limitsAstNodes()) {
+                long astNodes = compUnit.stream().count();
+                fileStats.setAstNodes(astNodes);
+                limits.checkAstNodes(astNodes);
+            }
+
+            List<ClassOrInterfaceDeclaration> declarations = JavaFileParser.testableTypes(compUnit);
+            if (declarations.isEmpty()) {
+                logger.log(Level.SEVERE, "Could not determine class name for file: {0}", source.path().getFileName());
+                failed(fileStats, "has no class to test");
+                return;
+            }
+
+            TypeResolver resolver = types.resolverFor(compUnit);
+            Analyzed analyzed = new Analyzed(source, System.nanoTime() - start, declarations.size());
+            if (declarations.size() == 1) {
+                detect(analyzed, 0, declarations.get(0), resolver);
+                return;
+            }
+            for (int i = 0; i < declarations.size(); i++) {
+                int position = i;
+                ClassOrInterfaceDeclaration declaration = declarations.get(i);
+                execute(parsers, () -> detect(analyzed, position, declaration, resolver),
+                        e -> typeFailed(analyzed, position, e));
+            }
+        }
+
+        /**
+         * Detects the scenarios of one type of a source and passes its model on to be written,
+         * or streams it right away when the run emits its analysis.
+         */
+        private void detect(Analyzed analyzed, int position, ClassOrInterfaceDeclaration declaration, TypeResolver resolver) {
+            limits.checkSpent(analyzed.spentNanos.get());
+            long start = System.nanoTime();
+            FileStats.Timer detect = analyzed.stats.start(Phase.DETECT);
+            TypeModel type = JavaFileParser.analyze(declaration, options.mask(), resolver);
+            detect.stop();
+            analyzed.charge(start);
+
+            if (analysis != null) {
+                emit(analyzed, position, type);
+                return;
+            }
+            execute(writers, () -> write(analyzed, position, type), e -> typeFailed(analyzed, position, e));
+        }
+
+        /**
+         * Streams the analysis of a type. Writing a few lines is cheaper than handing them to another stage.
+         */
+        private void emit(Analyzed analyzed, int position, TypeModel type) {
+            FileStats.Timer write = analyzed.stats.start(Phase.WRITE);
+            try {
+                analysis.write(analyzed.path, type, options);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not write the analysis of " + type.name(), e);
+            } finally {
+                write.stop();
+            }
+            typeDone(analyzed, position, type.name());
+        }
+
+        /**
+         * Renders the test class of a type into a temporary file in the output directory, then commits it
+         * if the source owns the test class name so far, otherwise discards it.
+         */
+        private void write(Analyzed analyzed, int position, TypeModel type) {
+            limits.checkSpent(analyzed.spentNanos.get());
+            FileStats fileStats = analyzed.stats;
+            long start = System.nanoTime();
+            FileStats.Timer render = fileStats.start(Phase.RENDER);
+            Optional<GeneratedTest> test = generator.generate(type, options, outputDir);
+            render.stop();
+            analyzed.charge(start);
+            if (test.isEmpty()) {
+                analyzed.error.compareAndSet(null, new IllegalStateException("could not write " + type.name() + " test class"));
+                typeDone(analyzed, position, null);
+                return;
+            }
+
+            fileStats.addStubs(test.get().stubCounts());
+            Claim claim = claims.computeIfAbsent(test.get().className(), name -> new Claim());
+            boolean failed = false;
+            synchronized (claim) {
+                if (analyzed.index < claim.owner) {
+                    generator.discard(test.get());
+                    collision(test.get().className(), analyzed.path, claim.ownerPath);
+                } else {
+                    if (claim.written && claim.owner != analyzed.index) {
+                        collision(test.get().className(), claim.ownerPath, analyzed.path);
+                    }
+                    claim.owner = analyzed.index;
+                    claim.ownerPath = analyzed.path;
+                    FileStats.Timer write = fileStats.start(Phase.WRITE);
+                    try {
+                        fileStats.addBytesWritten(generator.commit(test.get(), outputDir));
+                        claim.written = true;
+                        manifest.own(analyzed.path, test.get().className());
+                    } catch (IOException e) {
+                        failed = true;
+                        // The source fails and is not recorded in the manifest, so the next run writes it again
+                        logger.log(Level.SEVERE, "Error writing test file: {0}", e.getMessage());
+                        analyzed.error.compareAndSet(null, new IllegalStateException(
+                                "could not write " + test.get().className() + ": " + e.getMessage()));
+                    } finally {
+                        write.stop();
+                    }
+                }
+            }
+            typeDone(analyzed, position, failed ? null : test.get().className());
+        }
+
+        /**
+         * Records that one type of a source is done. The last one records the source in the manifest,
+         * unless any of its types failed, and completes it.
+         *
+         * @param className The name of the written test class, or of the type when the run emits its analysis,
+         *                  or null if the type failed.
+         */
+        private void typeDone(Analyzed analyzed, int position, String className) {
+            analyzed.classNames[position] = className;
+            if (analyzed.remaining.decrementAndGet() > 0) return;
+
+            List<String> classNames = Arrays.asList(analyzed.classNames);
+            if (classNames.contains(null)) {
+                Throwable error = analyzed.error.get();
+                if (error instanceof FileLimitExceededException) {
+                    reject(analyzed.stats, error.getMessage());
+                } else if (error == null) {
+                    failed(analyzed.stats, null);
+                } else {
+                    failed(analyzed.stats, error.getMessage() == null ? error.toString() : error.getMessage());
+                }
+                return;
+            }
+            if (manifest != null) {
+                deleteObsolete(manifest.record(analyzed.path, analyzed.hash, classNames));
+            }
+            finish(analyzed.stats, FileStats.Status.GENERATED);
+        }
+
+        /**
+         * Deletes the test files a source produced before but no longer does, e.g. of a nested class it dropped,
+         * unless another source claimed the same test class name during this run. A source that still produces
+         * the name but comes later in the run finds its test file missing and is generated again.
+         */
+        private void deleteObsolete(List<String> classNames) {
+            for (String className : classNames) {
+                Claim claim = claims.computeIfAbsent(className, name -> new Claim());
+                synchronized (claim) {
+                    if (claim.owner >= 0) continue;
+                    try {
+                        if (Files.deleteIfExists(outputDir.resolve(className + ".java"))) {
+                            logger.log(Level.INFO, "Deleted obsolete test file: {0}", className);
+                        }
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Could not delete obsolete test file {0}: {1}",
+                                new Object[]{className, e.getMessage()});
+                    }
+                }
+            }
+        }
+
+        /**
+         * Whether an unchanged source can keep one of its existing test files. It cannot if an earlier source
+         * with the same test class name was already committed in this run, and is then generated again.
+         * Nor can it if another source wrote the test file, unless that source comes later in this run.
+         */
+        private boolean keep(String className, int index, Path source) {
+            Claim claim = claims.computeIfAbsent(className, name -> new Claim());
+            synchronized (claim) {
+                // A later source owns the name, so this test file is not needed
+                if (index < claim.owner) return true;
+                String owner = manifest.owner(className);
+                if (!manifest.key(source).equals(owner)) {
+                    Integer ownerIndex = owner == null ? null : inputIndexes.get(owner);
+                    return ownerIndex != null && ownerIndex > index;
+                }
+                if (claim.written) collision(className, claim.ownerPath, source);
+                claim.owner = index;
+                claim.ownerPath = source;
+                // The file may have been deleted as obsolete since the manifest was checked
+                return !claim.written && Files.isRegularFile(outputDir.resolve(className + ".java"));
+            }
+        }
+
+        /**
+         * Logs that two sources produce the same test class name and only the later one gets its test class.
+         */
+        private void collision(String className, Path dropped, Path kept) {
+            logger.log(Level.WARNING, "{0} and {1} both produce {2}, only the test class of {1} is written",
+                    new Object[]{Archives.location(dropped), Archives.location(kept), className});
+        }
+
+        private void filtered(FileStats fileStats) {
+            logger.log(Level.FINE, "No public methods, skipping: {0}", fileStats.source());
+            finish(fileStats, FileStats.Status.FILTERED);
+        }
+
+        /**
+         * Completes a source that was rejected by a limit or hit an unexpected error in one of its tasks.
+         */
+        private void fail(FileStats fileStats, Throwable e) {
+            if (e instanceof FileLimitExceededException) {
+                reject(fileStats, e.getMessage());
+            } else {
+                logger.log(Level.SEVERE, "Failed to process file {0}: {1}", new Object[]{fileStats.source(), e});
+                failed(fileStats, e.toString());
+            }
+        }
+
+        /**
+         * Completes one type of a source that was rejected by a limit or hit an unexpected error.
+         */
+        private void typeFailed(Analyzed analyzed, int position, Throwable e) {
+            if (!(e instanceof FileLimitExceededException)) {
+                logger.log(Level.SEVERE, "Failed to process file {0}: {1}", new Object[]{analyzed.path, e});
+            }
+            analyzed.error.compareAndSet(null, e);
+            typeDone(analyzed, position, null);
+        }
+
+        private void reject(FileStats fileStats, String reason) {
+            logger.log(Level.WARNING, "Skipped {0}: {1}", new Object[]{fileStats.source(), reason});
+            fileStats.setReason(reason);
+            finish(fileStats, FileStats.Status.REJECTED);
+        }
+
+        private void failed(FileStats fileStats, String reason) {
+            fileStats.setReason(reason);
+            finish(fileStats, FileStats.Status.FAILED);
+        }
+
+        /**
+         * Completes a source and frees its place in the pipeline.
+         */
+        private void finish(FileStats fileStats, FileStats.Status status) {
+            fileStats.finish(status);
+            stats.record(fileStats);
+            counts.incrementAndGet(status.ordinal());
+            if (status == FileStats.Status.REJECTED || status == FileStats.Status.FAILED) notGenerated.add(fileStats);
+            inFlight.release();
+        }
+
+        /**
+         * Logs every source that was rejected or failed, with the reason, so a large run ends with one list to check.
+         */
+        void summarize() {
+            if (notGenerated.isEmpty()) return;
+            StringBuilder summary = new StringBuilder();
+            summary.append(notGenerated.size()).append(" source files did not produce test classes:");
+            notGenerated.stream()
+                    .sorted(Comparator.comparing(fileStats -> Archives.location(fileStats.source())))
+                    .forEach(fileStats -> summary.append("\n  ")
+                            .append(fileStats.status().name().toLowerCase(Locale.ROOT)).append(' ')
+                            .append(Archives.location(fileStats.source()))
+                            .append(fileStats.reason() == null ? "" : ": " + fileStats.reason()));
+            logger.log(Level.WARNING, summary.toString());
+        }
+
+        /**
+         * Runs a task of a source on a stage. An unexpected error fails only that task,
+         * and a FileLimitExceededException rejects only its source.
+         *
+         * Errors are caught as well: a StackOverflowError from parsing a deeply nested expression would otherwise
+         * end the worker without completing the source, and the run would wait for it forever.
+         *
+         * @param failure Completes the work of the task with the exception it threw.
+         */
+        private void execute(ExecutorService stage, Runnable task, Consumer<Throwable> failure) {
+            stage.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    failure.accept(e);
+                }
+            });
+        }
+
+        /**
+         * A fixed pool of daemon threads.
+         */
+        private ExecutorService stage(String name, int size) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(task, "testgenie-" + name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), factory);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.testgenie;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * A Reader over source code that fails once the deadline of its file has passed.
+ *
+ * The parser pulls the source through its Reader a few kilobytes at a time as it goes,
+ * so failing a read stops a parse that runs over its time limit part way, instead of after the whole file.
+ */
+final class DeadlineReader extends Reader {
+    private final StringReader content;
+    private final FileLimits limits;
+    private final long deadline;
+
+    DeadlineReader(String content, FileLimits limits, long deadline) {
+        this.content = new StringReader(content);
+        this.limits = limits;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        // Unchecked, as the parser would take an IOException for the end of the file
+        limits.checkDeadline(deadline);
+        return content.read(buffer, offset, length);
+    }
+
+    @Override
+    public void close() {
+        content.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.testgenie;
+
+/**
+ * Thrown when a source file is over one of its {@link FileLimits}. The message says which limit and by how much.
+ */
+public class FileLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public FileLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,92 @@
+package com.testgenie;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileLimits bounds the work a batch run spends on a single source file, so one pathological file,
+ * such as a generated parser of a hundred thousand lines, cannot hold up the whole run.
+ *
+ * A source over a limit is rejected: it gets no test class and is listed with the reason at the end of the run.
+ * A limit of 0 means no limit.
+ *
+ * @param maxBytes    The largest source file, in bytes, to read.
+ * @param maxAstNodes The largest AST, in nodes, to detect scenarios in.
+ * @param maxMillis   The longest a source may spend being parsed, detected and rendered, not counting the time
+ *                    it waits for a worker thread. It is checked during the parse and between the detect and
+ *                    render steps of each type, not inside them.
+ */
+public record FileLimits(long maxBytes, long maxAstNodes, long maxMillis) {
+    private static final FileLimits NONE = new FileLimits(0, 0, 0);
+
+    public FileLimits {
+        if (maxBytes < 0 || maxAstNodes < 0 || maxMillis < 0) {
+            throw new IllegalArgumentException("File limits cannot be negative");
+        }
+    }
+
+    /**
+     * Limits that accept every file.
+     */
+    public static FileLimits none() {
+        return NONE;
+    }
+
+    /**
+     * @throws FileLimitExceededException If a source of the given size is over the size limit.
+     */
+    void checkBytes(long bytes) {
+        if (maxBytes > 0 && bytes > maxBytes) {
+            throw new FileLimitExceededException(bytes + " bytes is over the limit of " + maxBytes);
+        }
+    }
+
+    /**
+     * Whether the AST of a source has to be counted to check it.
+     */
+    boolean limitsAstNodes() {
+        return maxAstNodes > 0;
+    }
+
+    /**
+     * @throws FileLimitExceededException If an AST of the given size is over the node limit.
+     */
+    void checkAstNodes(long nodes) {
+        if (maxAstNodes > 0 && nodes > maxAstNodes) {
+            throw new FileLimitExceededException(nodes + " AST nodes is over the limit of " + maxAstNodes);
+        }
+    }
+
+    boolean limitsTime() {
+        return maxMillis > 0;
+    }
+
+    /**
+     * The System.nanoTime() by which a source started at the given time has to be done.
+     * Only meaningful if {@link #limitsTime()}.
+     */
+    long deadline(long startNanos) {
+        return startNanos + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    /**
+     * @throws FileLimitExceededException If the deadline of a source has passed.
+     */
+    void checkDeadline(long deadline) {
+        if (maxMillis > 0 && System.nanoTime() - deadline > 0) {
+            throw timeExceeded();
+        }
+    }
+
+    /**
+     * @throws FileLimitExceededException If a source has spent more than the time limit on its own work.
+     */
+    void checkSpent(long spentNanos) {
+        if (maxMillis > 0 && spentNanos > TimeUnit.MILLISECONDS.toNanos(maxMillis)) {
+            throw timeExceeded();
+        }
+    }
+
+    private FileLimitExceededException timeExceeded() {
+        return new FileLimitExceededException("took longer than the limit of " + maxMillis + " ms");
+    }
+}
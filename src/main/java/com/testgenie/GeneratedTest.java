@@ -0,0 +1,19 @@
+package com.testgenie;
+
+import com.testgenie.model.Scenario;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A rendered test class that has not been committed to its final location yet.
+ *
+ * @param className  The name of the generated test class, e.g. CalculatorTest.
+ * @param file       The temporary file holding the rendered source.
+ * @param stubCounts The number of test stubs generated for each scenario.
+ */
+public record GeneratedTest(String className, Path file, Map<Scenario, Integer> stubCounts) {
+    public GeneratedTest {
+        stubCounts = Map.copyOf(stubCounts);
+    }
+}
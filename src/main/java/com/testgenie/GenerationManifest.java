@@ -0,0 +1,211 @@
+package com.testgenie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GenerationManifest remembers which sources were generated into an output directory.
+ *
+ * The manifest is stored as {@code <outputDir>/.testgenie-manifest} and records:
+ * - The TestGenie version that produced the output.
+ * - The fingerprint of the GenerationOptions and templates used.
+ * - For each source: the SHA-256 hash of its content and the names of the test classes it produced.
+ *   Sources are recorded by their path relative to the output directory, so the manifest stays valid when
+ *   a project is moved or its output is restored from a build cache into another checkout.
+ * - For each test file: the source that wrote it, as several sources can produce the same test class name.
+ *
+ * A source whose hash is unchanged, and whose test files all still exist, does not need to be parsed again,
+ * unless another source wrote one of those test files.
+ * If the version or fingerprint differ from the stored ones, every entry is discarded and all sources are regenerated.
+ */
+public class GenerationManifest {
+    public static final String FILE_NAME = ".testgenie-manifest";
+    public static final String VERSION = loadVersion();
+
+    private static final Logger logger = Logger.getLogger(GenerationManifest.class.getName());
+    private static final String VERSION_KEY = "version=";
+    // Raised when the way sources are recorded changes, which discards the manifests of the earlier format
+    private static final String FORMAT = ";format=2";
+    private static final String FINGERPRINT_KEY = "fingerprint=";
+    private static final String OWNER_KEY = "owner=";
+
+    private final Path outputDir;
+    private final String fingerprint;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The source that wrote the test file of each test class name
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    /**
+     * @param hash           The SHA-256 hash of the source content.
+     * @param testClassNames The names of the generated test classes, one per type of the source.
+     */
+    public record Entry(String hash, List<String> testClassNames) {
+        public Entry {
+            testClassNames = List.copyOf(testClassNames);
+        }
+    }
+
+    private GenerationManifest(Path outputDir, String fingerprint) {
+        this.outputDir = outputDir;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Loads the manifest of an output directory.
+     * Returns an empty manifest if none exists or it was written by another version or with another fingerprint.
+     *
+     * @param outputDir   The output directory holding the generated tests.
+     * @param fingerprint Everything besides the sources that affects the output, e.g. options and templates.
+     */
+    public static GenerationManifest load(Path outputDir, String fingerprint) {
+        GenerationManifest manifest = new GenerationManifest(outputDir, fingerprint);
+        Path file = outputDir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) return manifest;
+
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2
+                    || !lines.get(0).equals(VERSION_KEY + VERSION + FORMAT)
+                    || !lines.get(1).equals(FINGERPRINT_KEY + manifest.fingerprint)) {
+                logger.log(Level.INFO, "Generator version, options or templates changed, regenerating all test files");
+                return manifest;
+            }
+
+            for (String line : lines.subList(2, lines.size())) {
+                if (line.startsWith(OWNER_KEY)) {
+                    // owner=<test class name>\t<source path>
+                    String[] parts = line.substring(OWNER_KEY.length()).split("\t", 2);
+                    if (parts.length == 2) manifest.owners.put(parts[0], parts[1]);
+                    continue;
+                }
+                // <hash>\t<test class names, comma separated>\t<source path>
+                String[] parts = line.split("\t", 3);
+                if (parts.length == 3) {
+                    manifest.entries.put(parts[2], new Entry(parts[0], List.of(parts[1].split(","))));
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Ignoring unreadable manifest: {0}", e.getMessage());
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the recorded entry if the source is unchanged and its test files are all still present.
+     *
+     * @param source The source file.
+     * @param hash   The hash of its current content.
+     */
+    public Optional<Entry> upToDate(Path source, String hash) {
+        Entry entry = entries.get(key(source));
+        if (entry == null || !entry.hash().equals(hash)) return Optional.empty();
+        for (String testClassName : entry.testClassNames()) {
+            if (!Files.isRegularFile(outputDir.resolve(testClassName + ".java"))) return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Records the test classes generated from a source.
+     *
+     * @return The names of the test classes the source produced before but no longer does, e.g. of a nested class
+     *         that was removed. Their files may hold its old output and can be deleted: another source with the
+     *         same test class name is generated again once its test file is missing.
+     */
+    public List<String> record(Path source, String hash, List<String> testClassNames) {
+        Entry previous = entries.put(key(source), new Entry(hash, testClassNames));
+        if (previous == null) return List.of();
+        return previous.testClassNames().stream()
+                .filter(testClassName -> !testClassNames.contains(testClassName))
+                .toList();
+    }
+
+    /**
+     * Forgets a source that no longer exists.
+     *
+     * @param source The deleted source file.
+     * @return The names of the test classes the source produced, whose files can be deleted. Another source with
+     *         the same test class name is generated again once its test file is missing.
+     */
+    public List<String> remove(Path source) {
+        String key = key(source);
+        Entry entry = entries.remove(key);
+        owners.values().removeIf(key::equals);
+        return entry == null ? List.of() : entry.testClassNames();
+    }
+
+    /**
+     * Records that a source wrote the test file of a test class, replacing the source that wrote it before.
+     */
+    public void own(Path source, String testClassName) {
+        owners.put(testClassName, key(source));
+    }
+
+    /**
+     * The source that wrote the test file of a test class, as returned by {@link #key(Path)}, null if unknown.
+     */
+    String owner(String testClassName) {
+        return owners.get(testClassName);
+    }
+
+    /**
+     * Writes the manifest to the output directory, sorted by source path.
+     */
+    public void save() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(VERSION_KEY + VERSION + FORMAT);
+        lines.add(FINGERPRINT_KEY + fingerprint);
+        new TreeMap<>(entries).forEach((source, entry) ->
+                lines.add(entry.hash() + "\t" + String.join(",", entry.testClassNames()) + "\t" + source));
+        new TreeMap<>(owners).forEach((testClassName, source) ->
+                lines.add(OWNER_KEY + testClassName + "\t" + source));
+
+        Files.createDirectories(outputDir);
+        Files.write(outputDir.resolve(FILE_NAME), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a source is recorded, e.g. to tell whether the test files of a deleted source can be found.
+     */
+    public boolean contains(Path source) {
+        return entries.containsKey(key(source));
+    }
+
+    /**
+     * The name a source is recorded under: its path relative to the output directory, with / as separator,
+     * or its absolute location if the two do not share a file system root, e.g. for an archive entry.
+     */
+    String key(Path source) {
+        Path path = source.toAbsolutePath().normalize();
+        Path base = outputDir.toAbsolutePath().normalize();
+        if (path.getFileSystem() != base.getFileSystem() || !Objects.equals(path.getRoot(), base.getRoot())) {
+            return Archives.location(path);
+        }
+        return base.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static String loadVersion() {
+        try (InputStream in = GenerationManifest.class.getResourceAsStream("/testgenie.properties")) {
+            if (in == null) return "dev";
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties.getProperty("version", "dev");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
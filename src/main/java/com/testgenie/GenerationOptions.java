@@ -1,6 +1,10 @@
 package com.testgenie;
 
+import com.testgenie.model.Scenario;
+
+import java.util.Arrays;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -8,44 +12,87 @@ import java.util.Set;
  * features are enabled or ignored.
  * </p>
  * <p>
- * This class uses two static sets of flags:
- * - 'flags': a set of enabled flags.
- * - 'ignoreFlags': a set of flags to be ignored even if enabled.
+ * The flags are resolved once into a bit set of enabled Scenarios:
+ * - 'flags': the scenarios to generate, all of them if empty.
+ * - 'ignoreFlags': scenarios to skip even if enabled.
  * </p>
  * <p>
  * Usage:
- * - When checking if a feature should be generated for a given flag,
- *   call shouldGenerate(flag).
+ * - To keep only the enabled scenarios of a method, call filter(scenarios),
+ *   which is a single AND against the detected scenario set.
+ * - To check a single scenario, call shouldGenerate(scenario).
  * </p>
  */
 public class GenerationOptions {
-    // Set of enabled flags for generation
-    private Set<String> flags;
-    // Set of flags to ignore (even if present in 'flags')
-    private Set<String> ignoreFlags;
+    // Bit set of the scenarios that should be generated
+    private final int enabled;
 
     /**
-     * @param flags        a set of flags that enable certain generation features
-     * @param ignoreFlags  a set of flags to exclude from generation,
+     * @param flags        a set of scenarios to generate, or empty to generate all of them
+     * @param ignoreFlags  a set of scenarios to exclude from generation,
      *                     even if present in 'flags'
      */
-    public GenerationOptions(Set<String> flags, Set<String> ignoreFlags) {
-        this.flags = flags;
-        this.ignoreFlags = ignoreFlags;
+    public GenerationOptions(Set<Scenario> flags, Set<Scenario> ignoreFlags) {
+        int selected = flags.isEmpty() ? Scenario.ALL : maskOf(flags);
+        this.enabled = selected & ~maskOf(ignoreFlags);
+    }
+
+    /**
+     * Builds options from flag names such as "nulls" or "exceptions".
+     *
+     * @throws IllegalArgumentException if a flag does not name a scenario
+     */
+    public static GenerationOptions fromFlags(Set<String> flags, Set<String> ignoreFlags) {
+        return new GenerationOptions(toScenarios(flags), toScenarios(ignoreFlags));
     }
 
     /**
-     * <p>Determines if generation should proceed for the given flag.</p>
-     * <p>
-     * Logic:
-     * - If 'flags' is empty, allow all flags unless ignored.
-     * - If 'flags' is not empty, only allow flags present in 'flags'.
-     * - Always skip flags present in 'ignoreFlags'.
-     * </p>
-     * @param flag the flag to check
-     * @return true if generation should occur for this flag, false otherwise
+     * Determines if generation should proceed for the given scenario.
+     *
+     * @param scenario the scenario to check
+     * @return true if generation should occur for this scenario, false otherwise
      */
-    public boolean shouldGenerate(String flag) {
-        return (flags.isEmpty() || flags.contains(flag)) && (ignoreFlags.isEmpty() || !ignoreFlags.contains(flag));
+    public boolean shouldGenerate(Scenario scenario) {
+        return scenario.isIn(enabled);
+    }
+
+    /**
+     * Keeps only the enabled scenarios of a detected scenario set.
+     *
+     * @param scenarios a bit set of {@link Scenario#mask()} values
+     * @return the scenarios that should be generated
+     */
+    public int filter(int scenarios) {
+        return scenarios & enabled;
+    }
+
+    /**
+     * @return the bit set of enabled scenarios
+     */
+    public int mask() {
+        return enabled;
+    }
+
+    /**
+     * A stable description of these options, used to detect when previously generated
+     * output was produced with different flags.
+     *
+     * @return the enabled scenario flags, e.g. "scenarios=nulls,exceptions"
+     */
+    public String fingerprint() {
+        return "scenarios=" + Arrays.stream(Scenario.values())
+                .filter(this::shouldGenerate)
+                .map(Scenario::flag)
+                .collect(Collectors.joining(","));
+    }
+
+    private static int maskOf(Set<Scenario> scenarios) {
+        int mask = 0;
+        for (Scenario scenario : scenarios) mask |= scenario.mask();
+        return mask;
+    }
+
+    private static Set<Scenario> toScenarios(Set<String> flags) {
+        return flags.stream().map(Scenario::fromFlag).collect(Collectors.toSet());
     }
-}
\ No newline at end of file
+}
@@ -1,98 +1,318 @@
 package com.testgenie;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Providers;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.Type;
+import com.testgenie.model.FieldModel;
+import com.testgenie.model.MethodModel;
+import com.testgenie.model.Scenario;
+import com.testgenie.model.SourceModel;
+import com.testgenie.model.TypeModel;
+import com.testgenie.model.TypeRef;
+import com.testgenie.resolve.TypeIndex;
+import com.testgenie.resolve.TypeResolver;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * JavaFileParser is responsible for:
  * - Parsing Java source files using JavaParser.
- * @parseMethod Extracts all method declarations from the source code.
- * @parseFields Extracting all method fields from the source code.
- * @parseClassOrInterfaceName Extracts the class or interface name from the source code.
+ * @parse Parses a source file once and builds its immutable SourceModel.
+ * @parseUnit and @analyze Expose the two halves of parse so they can be timed separately.
  *
- * This class uses StaticJavaParser for simplicity, which provides a static entry point
- * to parse files without explicitly creating a JavaParser configuration.
+ * Every top-level and static nested class or interface in the file is captured along with the fields
+ * and methods it declares itself, so members of inner, local and anonymous classes never leak into it.
+ * Each method is analyzed for test scenarios by ScenarioVisitor while the AST is still in memory.
+ * Field and parameter types are resolved to TypeRefs, against a TypeIndex when one is given.
+ * The AST is not retained, so the returned model is all the TestGenerator needs.
+ *
+ * StaticJavaParser keeps its configuration in shared static state, so instead every thread
+ * that parses gets its own JavaParser and configuration. This keeps batch runs on a worker
+ * pool independent of each other, and each worker reuses its parser for every file it handles.
+ *
+ * The configuration is tuned to what the model needs:
+ * - Comments are not attributed to nodes, the model never reads them.
+ * - The JAVA_17 language level, the newest JavaParser 3.25 knows, so records, switch expressions and yield parse.
+ *   RAW would skip the validation pass, but it does not accept yield.
+ * Tokens stay stored: without them the parser cannot build switch entries, so every arrow-form switch
+ * and every switch expression would fail to parse.
  */
 public class JavaFileParser {
     private static final Logger logger = Logger.getLogger(JavaFileParser.class.getName());
+    // One parser per worker thread, JavaParser instances are not safe to share
+    private static final ThreadLocal<JavaParser> PARSER =
+            ThreadLocal.withInitial(() -> new JavaParser(configuration()));
 
     private JavaFileParser() {
         throw new UnsupportedOperationException(JavaFileParser.class.getName() + " cannot be instantiated.");
     }
 
     /**
-     * Parses a given Java file and extracts all method declarations.
+     * Parses a given Java file and builds the analysis model for it.
      *
      * @param file The Java source file to parse.
-     * @return A list of MethodDeclaration nodes found in the file.
-     *         Returns an empty list if parsing fails or no methods are found.
+     * @return The SourceModel for the file.
+     *         Returns an empty Optional if parsing fails.
      */
-    public static List<MethodDeclaration> parseMethods(File file) {
+    public static Optional<SourceModel> parse(File file) {
         try {
-            // Parse the Java file into a CompilationUnit (AST root)
-            CompilationUnit compUnit = StaticJavaParser.parse(file);
-
-            // Find all method declarations in the file and return them
-            return compUnit.findAll(MethodDeclaration.class)
-                    .stream()
-                    .toList();
-
-        } catch(Exception e) {
-            // If parsing fails, return an empty list instead of throwing and return an error message
-            logger.log(Level.SEVERE, "Failed to parse file for methods: {0}", e.getMessage());
-            return List.of();
+            return Optional.of(analyze(file.toPath(), unwrap(PARSER.get().parse(file))));
+        } catch(IOException | ParseProblemException e) {
+            // If parsing fails, return an empty model instead of throwing and return an error message
+            logger.log(Level.SEVERE, "Failed to parse file: {0}", e.getMessage());
+            return Optional.empty();
         }
     }
 
     /**
-     * Parses a given Java file and extracts all field declarations.
+     * Parses source code that has already been read into memory and builds the analysis model for it.
      *
-     * @param file The Java source file to parse.
-     * @return A list of FieldDeclaration nodes found in the file.
-     *         Returns an empty list if parsing fails or no fields are found.
+     * @param source The path the source code was read from.
+     * @param content The Java source code.
+     * @return The SourceModel for the source code.
+     *         Returns an empty Optional if parsing fails.
      */
-    public static List<FieldDeclaration> parseFields(File file) {
+    public static Optional<SourceModel> parse(Path source, String content) {
         try {
-            CompilationUnit compUnit = StaticJavaParser.parse(file);
-
-            return compUnit.findAll(FieldDeclaration.class)
-                    .stream()
-                    .toList();
-        } catch(Exception e) {
-            // If parsing fails, return an empty list instead of throwing and return an error message
-            logger.log(Level.SEVERE, "Failed to parse file for class fields: {0}", e.getMessage());
-            return List.of();
+            return Optional.of(analyze(source, parseUnit(content)));
+        } catch(ParseProblemException e) {
+            logger.log(Level.SEVERE, "Failed to parse file: {0}", e.getMessage());
+            return Optional.empty();
         }
     }
 
     /**
-     * Parses a given Java file and extracts the class or interface name.
-     * This method is used to capture the name of the file and prefixing it with Test during the TestGeneration.
+     * Parses source code into its AST without analyzing it.
+     * Together with {@link #analyze(Path, CompilationUnit)} this lets callers time the two phases separately.
      *
-     * @param file The Java source file to parse.
-     * @return A list of ClassOrInterfaceDeclaration nodes found in the file.
-     *      Returns an empty list if parsing fails or no fields are found.
+     * @param content The Java source code.
+     * @return The CompilationUnit of the source code.
+     * @throws ParseProblemException If the source code cannot be parsed.
      */
-    public static Optional<String> parseClassOrInterfaceName(File file) {
-        try {
-            CompilationUnit compUnit = StaticJavaParser.parse(file);
-
-            return compUnit.findAll(ClassOrInterfaceDeclaration.class)
-                    .stream()
-                    .findFirst()
-                    .map(ClassOrInterfaceDeclaration::getNameAsString);
-        } catch(Exception e) {
-            logger.log(Level.SEVERE, "Failed to parse file for ClassOrInterfanceName: {0}", e.getMessage());
-            return Optional.empty();
+    public static CompilationUnit parseUnit(String content) {
+        return unwrap(PARSER.get().parse(content));
+    }
+
+    /**
+     * Parses source code into its AST, pulling it from a Reader as the parser goes.
+     * An unchecked exception thrown by the Reader aborts the parse.
+     *
+     * @param content The Java source code.
+     * @return The CompilationUnit of the source code.
+     * @throws ParseProblemException If the source code cannot be parsed or reading it fails.
+     */
+    public static CompilationUnit parseUnit(Reader content) {
+        return unwrap(PARSER.get().parse(ParseStart.COMPILATION_UNIT, Providers.provider(content)));
+    }
+
+    /**
+     * Builds the analysis model from a parsed CompilationUnit.
+     * The model does not reference the AST, so the CompilationUnit can be released afterwards.
+     *
+     * @param source The path the source code was read from.
+     * @param compUnit The parsed source code.
+     * @return The SourceModel for the source code.
+     */
+    public static SourceModel analyze(Path source, CompilationUnit compUnit) {
+        return analyze(source, compUnit, Scenario.ALL);
+    }
+
+    /**
+     * Builds the analysis model from a parsed CompilationUnit, detecting only the wanted scenarios.
+     *
+     * @param source The path the source code was read from.
+     * @param compUnit The parsed source code.
+     * @param wanted The scenarios to detect, usually {@link GenerationOptions#mask()}.
+     * @return The SourceModel for the source code.
+     */
+    public static SourceModel analyze(Path source, CompilationUnit compUnit, int wanted) {
+        return analyze(source, compUnit, wanted, TypeIndex.disabled());
+    }
+
+    /**
+     * Builds the analysis model from a parsed CompilationUnit, detecting only the wanted scenarios
+     * and resolving field and parameter types through a TypeIndex.
+     *
+     * @param source The path the source code was read from.
+     * @param compUnit The parsed source code.
+     * @param wanted The scenarios to detect, usually {@link GenerationOptions#mask()}.
+     * @param types The index to resolve types with, shared by every file of the run.
+     * @return The SourceModel for the source code.
+     */
+    public static SourceModel analyze(Path source, CompilationUnit compUnit, int wanted, TypeIndex types) {
+        TypeResolver resolver = types.resolverFor(compUnit);
+        List<TypeModel> typeModels = testableTypes(compUnit)
+                .stream()
+                .map(type -> analyze(type, wanted, resolver))
+                .toList();
+
+        return new SourceModel(source, typeModels);
+    }
+
+    /**
+     * The classes and interfaces of a file that get a test class: the top-level ones and the static nested classes,
+     * each outer type before the types nested in it. Inner, local and anonymous classes and nested interfaces are left out,
+     * as are nested classes the generated test package cannot reach: those that are not public themselves,
+     * or are nested in a type that is not. The same goes for the package-private top-level types next to
+     * a public one, e.g. a helper class. A file without a public top-level type keeps them, as its only
+     * types, so that the file is not reported as having no class to test.
+     *
+     * @param compUnit The parsed source code.
+     * @return The type declarations in source order.
+     */
+    public static List<ClassOrInterfaceDeclaration> testableTypes(CompilationUnit compUnit) {
+        List<ClassOrInterfaceDeclaration> types = new ArrayList<>();
+        boolean hasPublicType = compUnit.getTypes().stream().anyMatch(TypeDeclaration::isPublic);
+        for (TypeDeclaration<?> type : compUnit.getTypes()) {
+            if (hasPublicType && !type.isPublic()) continue;
+            collectTestableTypes(type, types);
+        }
+        return types;
+    }
+
+    /**
+     * Builds the model of a class or interface from the members it declares directly.
+     * Types of one file can be analyzed concurrently, as this only reads the AST.
+     *
+     * @param type A type returned by {@link #testableTypes(CompilationUnit)}.
+     * @param wanted The scenarios to detect, usually {@link GenerationOptions#mask()}.
+     * @param resolver The resolver for the file the type is declared in.
+     * @return The TypeModel of the type.
+     */
+    public static TypeModel analyze(ClassOrInterfaceDeclaration type, int wanted, TypeResolver resolver) {
+        Set<String> typeParameters = TypeResolver.typeParameters(type);
+        List<FieldModel> fields = type.getMembers().stream()
+                .filter(FieldDeclaration.class::isInstance)
+                .map(FieldDeclaration.class::cast)
+                .map(field -> new FieldModel(
+                        field.getVariable(0).getNameAsString(),
+                        resolver.resolve(field.getVariable(0).getType(), typeParameters),
+                        field.isStatic()))
+                .toList();
+
+        List<MethodModel> methods = type.getMembers().stream()
+                .filter(MethodDeclaration.class::isInstance)
+                .map(MethodDeclaration.class::cast)
+                .map(method -> analyzeMethod(method, wanted, resolver, typeParameters))
+                .toList();
+
+        // The test class lives in another package, so it needs the imports the type's own code relies on
+        Optional<CompilationUnit> compUnit = type.findCompilationUnit();
+        String packageName = compUnit.flatMap(CompilationUnit::getPackageDeclaration)
+                .map(PackageDeclaration::getNameAsString)
+                .orElse("");
+        List<String> imports = compUnit.map(CompilationUnit::getImports).orElseGet(NodeList::new).stream()
+                .filter(declaration -> !declaration.isStatic())
+                .map(declaration -> declaration.getNameAsString() + (declaration.isAsterisk() ? ".*" : ""))
+                .toList();
+
+        return new TypeModel(packageName, nameOf(type), imports, fields, methods);
+    }
+
+    /**
+     * The parser configuration used by every worker, see the class documentation.
+     */
+    public static ParserConfiguration configuration() {
+        return new ParserConfiguration()
+                .setAttributeComments(false)
+                .setLexicalPreservationEnabled(false)
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+    }
+
+    private static CompilationUnit unwrap(ParseResult<CompilationUnit> result) {
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
+    }
+
+    /**
+     * Adds a type if it is a class or interface, then its static member types that are public.
+     * Member types of interfaces, and nested interfaces, enums and records, are implicitly static,
+     * and member types of interfaces and annotations are implicitly public.
+     */
+    private static void collectTestableTypes(TypeDeclaration<?> type, List<ClassOrInterfaceDeclaration> types) {
+        boolean isInterface = type instanceof ClassOrInterfaceDeclaration declaration && declaration.isInterface();
+        // A nested interface cannot be instantiated by a test, but the classes nested in it can
+        if (type instanceof ClassOrInterfaceDeclaration declaration && !(isInterface && type.isNestedType())) {
+            types.add(declaration);
+        }
+        // The test package cannot reach the types nested in a top-level type that is not public.
+        // A nested type only gets here if it and its outer types are public
+        if (!type.isNestedType() && !type.isPublic()) return;
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (!(member instanceof TypeDeclaration<?> nested)) continue;
+            boolean implicitlyStatic = isInterface || !(nested instanceof ClassOrInterfaceDeclaration declaration)
+                    || declaration.isInterface();
+            boolean reachable = nested.isPublic() || isImplicitlyPublic(nested);
+            if ((implicitlyStatic || nested.isStatic()) && reachable) {
+                collectTestableTypes(nested, types);
+            }
+        }
+    }
+
+    /**
+     * Whether a member type is public without saying so, as a member of an interface or annotation.
+     */
+    private static boolean isImplicitlyPublic(TypeDeclaration<?> nested) {
+        return nested.getParentNode()
+                .filter(parent -> parent instanceof AnnotationDeclaration
+                        || parent instanceof ClassOrInterfaceDeclaration declaration && declaration.isInterface())
+                .isPresent();
+    }
+
+    /**
+     * The name of a type within its package, e.g. "Outer.Inner".
+     */
+    private static String nameOf(TypeDeclaration<?> type) {
+        StringBuilder name = new StringBuilder(type.getNameAsString());
+        Optional<Node> parent = type.getParentNode();
+        while (parent.isPresent() && parent.get() instanceof TypeDeclaration<?> outer) {
+            name.insert(0, outer.getNameAsString() + ".");
+            parent = outer.getParentNode();
+        }
+        return name.toString();
+    }
+
+    /**
+     * Captures the scenarios and parameter types of a method while its body is still available.
+     */
+    private static MethodModel analyzeMethod(MethodDeclaration method, int wanted, TypeResolver resolver,
+                                             Set<String> classTypeParameters) {
+        Set<String> typeParameters = TypeResolver.typeParameters(method);
+        typeParameters.addAll(classTypeParameters);
+
+        List<TypeRef> parameters = new ArrayList<>();
+        for (Parameter parameter : method.getParameters()) {
+            // A varargs parameter is an array inside the method, and is called with one
+            Type type = parameter.isVarArgs() ? new ArrayType(parameter.getType().clone()) : parameter.getType();
+            parameters.add(resolver.resolve(type, typeParameters));
         }
+        return new MethodModel(method.getNameAsString(), method.isPublic(), ScenarioVisitor.detect(method, wanted), parameters);
     }
 }
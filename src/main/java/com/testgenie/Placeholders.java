@@ -0,0 +1,97 @@
+package com.testgenie;
+
+import com.testgenie.model.MethodModel;
+import com.testgenie.model.TypeRef;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Placeholders builds the argument lists the test stubs call a method with, from its parameter types.
+ *
+ * - Primitives get their zero value, e.g. {@code 0.0} for a double.
+ * - Arrays get an empty array.
+ * - Common JDK value types get a simple value, e.g. {@code ""} for a String.
+ * - Other final JDK types get null.
+ * - Other resolved types get a mock.
+ * - Unresolved types get null.
+ */
+public final class Placeholders {
+    private static final Map<String, String> PRIMITIVES = Map.of(
+            "boolean", "false",
+            "byte", "(byte) 0",
+            "short", "(short) 0",
+            "char", "'a'",
+            "int", "0",
+            "long", "0L",
+            "float", "0.0f",
+            "double", "0.0");
+
+    // A value starting with a dot is a constant of the type, qualified with the type as written in the source
+    private static final Map<String, String> VALUES = Map.ofEntries(
+            Map.entry("java.lang.String", "\"\""),
+            Map.entry("java.lang.Boolean", "false"),
+            Map.entry("java.lang.Byte", "(byte) 0"),
+            Map.entry("java.lang.Short", "(short) 0"),
+            Map.entry("java.lang.Character", "'a'"),
+            Map.entry("java.lang.Integer", "0"),
+            Map.entry("java.lang.Long", "0L"),
+            Map.entry("java.lang.Float", "0.0f"),
+            Map.entry("java.lang.Double", "0.0"),
+            Map.entry("java.math.BigDecimal", ".ZERO"),
+            Map.entry("java.math.BigInteger", ".ZERO"));
+
+    private Placeholders() {
+        throw new UnsupportedOperationException(Placeholders.class.getName() + " cannot be instantiated.");
+    }
+
+    /**
+     * The arguments of a call to the method, e.g. {@code 0.0, ""}.
+     */
+    public static String arguments(MethodModel method) {
+        return join(method.parameters(), -1);
+    }
+
+    /**
+     * The arguments of a call that passes null as the first parameter that accepts it.
+     * Every argument is a plain placeholder if no parameter accepts null.
+     */
+    public static String nullArguments(MethodModel method) {
+        List<TypeRef> parameters = method.parameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).kind() != TypeRef.Kind.PRIMITIVE) return join(parameters, i);
+        }
+        return join(parameters, -1);
+    }
+
+    /**
+     * A placeholder value of a type.
+     */
+    public static String of(TypeRef type) {
+        // Value-like JDK classes that are not final, such as BigDecimal, are still better used as values
+        String value = type.qualifiedName() == null ? null : VALUES.get(type.qualifiedName());
+        if (value != null) {
+            return value.startsWith(".") ? type.rawName() + value : value;
+        }
+
+        return switch (type.kind()) {
+            case PRIMITIVE -> PRIMITIVES.get(type.rawName());
+            case ARRAY -> {
+                // new int[0][] for int[][]
+                int dims = type.rawName().indexOf("[]");
+                yield "new " + type.rawName().substring(0, dims) + "[0]" + type.rawName().substring(dims + 2);
+            }
+            case VALUE, UNRESOLVED -> "null";
+            case REFERENCE -> "mock(" + type.rawName() + ".class)";
+        };
+    }
+
+    private static String join(List<TypeRef> parameters, int nullIndex) {
+        StringJoiner arguments = new StringJoiner(", ");
+        for (int i = 0; i < parameters.size(); i++) {
+            arguments.add(i == nullIndex ? "null" : of(parameters.get(i)));
+        }
+        return arguments.toString();
+    }
+}
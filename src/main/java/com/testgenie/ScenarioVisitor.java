@@ -0,0 +1,147 @@
+package com.testgenie;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.testgenie.model.Scenario;
+
+/**
+ * ScenarioVisitor detects the test scenarios of a method in a single walk over its body.
+ *
+ * Every node is visited once and the detected scenarios are collected in an int bit set,
+ * so detection never renders parts of the AST back to source text to match on strings.
+ *
+ * Detected scenarios:
+ * - NULL_CHECK: a {@code == null} comparison or a call to requireNonNull.
+ * - EXCEPTION: a throws clause or a throw statement.
+ * - CONDITIONAL: an if or switch.
+ * - OPTIONAL: a method call on Optional.
+ * - BOOLEAN: a boolean return type or a boolean literal in a return statement.
+ * - STATE_CHANGE: any assignment.
+ */
+public class ScenarioVisitor extends VoidVisitorAdapter<Void> {
+    private int scenarios;
+    // Greater than zero while visiting the expression of a return statement
+    private int returnDepth;
+
+    private ScenarioVisitor() {
+    }
+
+    /**
+     * Detects the scenarios of a method.
+     *
+     * @param method The method declaration to analyze.
+     * @return The detected scenarios as a bit set of {@link Scenario#mask()} values.
+     */
+    public static int detect(MethodDeclaration method) {
+        return detect(method, Scenario.ALL);
+    }
+
+    /**
+     * Detects only the wanted scenarios of a method. The body is not walked at all if no
+     * scenario is wanted or the signature alone already shows every wanted scenario.
+     *
+     * @param method The method declaration to analyze.
+     * @param wanted The scenarios to look for, usually {@link GenerationOptions#mask()}.
+     * @return The detected scenarios that are also wanted.
+     */
+    public static int detect(MethodDeclaration method, int wanted) {
+        if (wanted == 0) return 0;
+        ScenarioVisitor visitor = new ScenarioVisitor();
+
+        if (!method.getThrownExceptions().isEmpty()) {
+            visitor.scenarios |= Scenario.EXCEPTION.mask();
+        }
+        if (method.getType() instanceof PrimitiveType type && type.getType() == PrimitiveType.Primitive.BOOLEAN) {
+            visitor.scenarios |= Scenario.BOOLEAN.mask();
+        }
+
+        if ((visitor.scenarios & wanted) != wanted) {
+            method.getBody().ifPresent(body -> body.accept(visitor, null));
+        }
+        return visitor.scenarios & wanted;
+    }
+
+    @Override
+    public void visit(BinaryExpr n, Void arg) {
+        if (n.getOperator() == BinaryExpr.Operator.EQUALS
+                && (n.getLeft().isNullLiteralExpr() || n.getRight().isNullLiteralExpr())) {
+            scenarios |= Scenario.NULL_CHECK.mask();
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(MethodCallExpr n, Void arg) {
+        if (n.getName().getIdentifier().equals("requireNonNull")) {
+            scenarios |= Scenario.NULL_CHECK.mask();
+        }
+        n.getScope().ifPresent(scope -> {
+            if (isOptional(scope)) scenarios |= Scenario.OPTIONAL.mask();
+        });
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ThrowStmt n, Void arg) {
+        scenarios |= Scenario.EXCEPTION.mask();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(IfStmt n, Void arg) {
+        scenarios |= Scenario.CONDITIONAL.mask();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchStmt n, Void arg) {
+        scenarios |= Scenario.CONDITIONAL.mask();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchExpr n, Void arg) {
+        scenarios |= Scenario.CONDITIONAL.mask();
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ReturnStmt n, Void arg) {
+        returnDepth++;
+        super.visit(n, arg);
+        returnDepth--;
+    }
+
+    @Override
+    public void visit(BooleanLiteralExpr n, Void arg) {
+        if (returnDepth > 0) {
+            scenarios |= Scenario.BOOLEAN.mask();
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(AssignExpr n, Void arg) {
+        scenarios |= Scenario.STATE_CHANGE.mask();
+        super.visit(n, arg);
+    }
+
+    /**
+     * Matches {@code Optional.of(...)} as well as qualified scopes such as {@code java.util.Optional.empty()}.
+     */
+    private static boolean isOptional(Expression scope) {
+        if (scope.isNameExpr()) {
+            return scope.asNameExpr().getName().getIdentifier().contains("Optional");
+        }
+        if (scope.isFieldAccessExpr()) {
+            return scope.asFieldAccessExpr().getName().getIdentifier().contains("Optional");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,161 @@
+package com.testgenie;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * SourceDiscovery expands the --input arguments into the list of Java source files to process.
+ *
+ * Each input can be:
+ * - A single .java file.
+ * - A directory, which is searched recursively for .java files.
+ * - A JAR or ZIP archive such as a -sources.jar, whose .java entries are read in place through {@link Archives}.
+ * - A glob such as {@code src/main/java/**}{@code /*.java}, resolved from its longest non-glob prefix.
+ *
+ * The result keeps the input order and is sorted within each input, so batch runs are deterministic
+ * no matter how many threads process them, and a later input wins a test class name shared with an earlier one.
+ * A file reached through several inputs, e.g. a directory and a file inside it, is only listed the first time.
+ */
+public class SourceDiscovery {
+    private static final String JAVA_EXTENSION = ".java";
+
+    private SourceDiscovery() {
+        throw new UnsupportedOperationException(SourceDiscovery.class.getName() + " cannot be instantiated.");
+    }
+
+    /**
+     * Resolves every input to the Java source files it refers to.
+     *
+     * @param inputs   The raw --input values.
+     * @param archives Opens the archive inputs, which must stay open while their sources are read.
+     * @return The matching source files, in input order and sorted within each input, each listed once.
+     * @throws IOException If an input does not exist or a directory or archive cannot be read.
+     */
+    public static List<Path> discover(List<String> inputs, Archives archives) throws IOException {
+        // Keyed by the absolute, normalized path, so relative and absolute inputs of the same file match
+        Map<Path, Path> sources = new LinkedHashMap<>();
+
+        for (String input : inputs) {
+            if (isGlob(input)) {
+                addAll(sources, expandGlob(input));
+                continue;
+            }
+
+            Path path = Path.of(input);
+            if (Files.isDirectory(path)) {
+                addAll(sources, walk(path, p -> true));
+            } else if (Files.isRegularFile(path) && Archives.isArchive(path)) {
+                addAll(sources, walk(archives.open(path), p -> true));
+            } else if (Files.isRegularFile(path)) {
+                addAll(sources, List.of(path.normalize()));
+            } else {
+                throw new IOException("Invalid input file: " + input);
+            }
+        }
+
+        return new ArrayList<>(sources.values());
+    }
+
+    private static void addAll(Map<Path, Path> sources, List<Path> paths) {
+        for (Path path : paths) {
+            sources.putIfAbsent(path.toAbsolutePath().normalize(), path);
+        }
+    }
+
+    /**
+     * A directory to watch for changes of the sources of an input.
+     *
+     * @param dir       The absolute, normalized directory.
+     * @param recursive Whether its subdirectories have to be watched as well.
+     */
+    public record WatchRoot(Path dir, boolean recursive) {
+    }
+
+    /**
+     * The directories that contain the sources an input refers to, for watching them for changes.
+     * A directory maps to itself and a glob to the directory in front of its first glob character, both recursively.
+     * A file input maps to its parent directory alone, so watching one file never watches the tree around it.
+     *
+     * @param inputs The raw --input values.
+     * @return The directories to watch.
+     */
+    public static Set<WatchRoot> roots(List<String> inputs) {
+        Set<WatchRoot> roots = new LinkedHashSet<>();
+        for (String input : inputs) {
+            Path root = isGlob(input) ? globBase(input) : Path.of(input);
+            boolean recursive = Files.isDirectory(root);
+            if (!recursive) root = root.toAbsolutePath().getParent();
+            if (root != null) roots.add(new WatchRoot(root.toAbsolutePath().normalize(), recursive));
+        }
+        return roots;
+    }
+
+    /**
+     * Builds a filter accepting exactly the Java source files that {@link #discover(List, Archives)} would return
+     * for the given inputs, without walking the file system.
+     *
+     * @param inputs The raw --input values.
+     * @return A predicate over absolute or relative source paths.
+     */
+    public static Predicate<Path> filter(List<String> inputs) {
+        List<Predicate<Path>> filters = new ArrayList<>();
+        for (String input : inputs) {
+            if (isGlob(input)) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+                Path cwd = Path.of("").toAbsolutePath();
+                filters.add(p -> matcher.matches(p) || (p.isAbsolute() && p.startsWith(cwd) && matcher.matches(cwd.relativize(p))));
+            } else {
+                Path path = Path.of(input).toAbsolutePath().normalize();
+                filters.add(p -> p.toAbsolutePath().normalize().startsWith(path));
+            }
+        }
+        return p -> p.getFileName().toString().endsWith(JAVA_EXTENSION) && filters.stream().anyMatch(f -> f.test(p));
+    }
+
+    static boolean isGlob(String input) {
+        return input.chars().anyMatch(c -> c == '*' || c == '?' || c == '[' || c == '{');
+    }
+
+    /**
+     * Walks the directory in front of the first glob character and keeps the files matching the whole pattern.
+     */
+    private static List<Path> expandGlob(String glob) throws IOException {
+        Path base = globBase(glob);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+        if (!Files.isDirectory(base.toAbsolutePath())) {
+            throw new IOException("Invalid input glob: " + glob);
+        }
+        return walk(base, matcher::matches);
+    }
+
+    private static Path globBase(String glob) {
+        int firstGlobChar = 0;
+        while (!isGlob(String.valueOf(glob.charAt(firstGlobChar)))) firstGlobChar++;
+
+        int lastSeparator = Math.max(glob.lastIndexOf('/', firstGlobChar), glob.lastIndexOf('\\', firstGlobChar));
+        return lastSeparator < 0 ? Path.of("") : Path.of(glob.substring(0, lastSeparator + 1));
+    }
+
+    private static List<Path> walk(Path root, PathMatcher filter) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(JAVA_EXTENSION))
+                    .map(Path::normalize)
+                    .filter(filter::matches)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
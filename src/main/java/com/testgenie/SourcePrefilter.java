@@ -0,0 +1,90 @@
+package com.testgenie;
+
+import java.nio.file.Path;
+
+/**
+ * SourcePrefilter decides, without parsing, whether a source file can produce any test stubs.
+ *
+ * Only public methods get test stubs, so a file without the {@code public} keyword outside of comments
+ * and literals is never worth a full parse. package-info.java and module-info.java never declare methods.
+ *
+ * The scan is a single pass over the characters of the file. It can only answer "maybe" too often,
+ * e.g. for a public class whose methods are all private, never "no" for a file that has a public method.
+ */
+public final class SourcePrefilter {
+    private static final String PUBLIC = "public";
+
+    private SourcePrefilter() {
+        throw new UnsupportedOperationException(SourcePrefilter.class.getName() + " cannot be instantiated.");
+    }
+
+    /**
+     * Whether a file can be skipped on its name alone, before it is even read.
+     *
+     * @param source The source file.
+     * @return True for package-info.java and module-info.java.
+     */
+    public static boolean isDescriptor(Path source) {
+        Path fileName = source.getFileName();
+        if (fileName == null) return false;
+        String name = fileName.toString();
+        return name.equals("package-info.java") || name.equals("module-info.java");
+    }
+
+    /**
+     * Whether the source code may declare a public method.
+     *
+     * @param content The Java source code.
+     * @return False only if {@code public} does not appear as a keyword anywhere in the code.
+     */
+    public static boolean mayHavePublicMethods(String content) {
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            char c = content.charAt(i);
+            if (c == '/' && i + 1 < length && content.charAt(i + 1) == '/') {
+                i = skipPast(content, i + 2, "\n");
+            } else if (c == '/' && i + 1 < length && content.charAt(i + 1) == '*') {
+                i = skipPast(content, i + 2, "*/");
+            } else if (c == '"' && content.startsWith("\"\"\"", i)) {
+                i = skipPast(content, i + 3, "\"\"\"");
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(content, i + 1, c);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(content.charAt(end))) end++;
+                if (end - i == PUBLIC.length() && content.startsWith(PUBLIC, i)) return true;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index just after the next occurrence of a terminator, or the end of the content.
+     */
+    private static int skipPast(String content, int from, String terminator) {
+        int end = content.indexOf(terminator, from);
+        return end < 0 ? content.length() : end + terminator.length();
+    }
+
+    /**
+     * Returns the index just after the closing quote of a string or char literal, honouring escapes.
+     */
+    private static int skipLiteral(String content, int from, char quote) {
+        int i = from;
+        while (i < content.length()) {
+            char c = content.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return content.length();
+    }
+}
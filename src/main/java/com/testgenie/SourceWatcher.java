@@ -0,0 +1,172 @@
+package com.testgenie;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * SourceWatcher keeps the JVM running and regenerates test classes when their sources change.
+ *
+ * The directories behind every --input are registered recursively with a WatchService, except for the
+ * directory of a file input, which is registered alone; the inputs filter its events down to that file.
+ * Editors and build tools usually touch a file several times per save, so events are collected
+ * until no new event arrives for the debounce window. If any of them concerns a source of the inputs,
+ * the inputs are discovered again: the test files of sources that are gone are removed, and every source
+ * is handed to the BatchGenerator in input order, so a later input still wins a shared test class name.
+ * Its manifest skips the unchanged sources. Parser, generator and JIT all stay warm between runs.
+ */
+public class SourceWatcher {
+    private static final Logger logger = Logger.getLogger(SourceWatcher.class.getName());
+
+    private final List<String> inputs;
+    private final Archives archives;
+    private final BatchGenerator batch;
+    private final String outputDir;
+    private final GenerationOptions options;
+    private final long debounceMillis;
+    // The directories whose new subdirectories are watched too
+    private final Set<Path> recursive = new HashSet<>();
+    // The sources of the last run
+    private List<Path> sources;
+
+    /**
+     * @param inputs         The raw --input values to watch.
+     * @param sources        The sources the inputs were discovered as for the first run.
+     * @param archives       Opens the archive inputs when the inputs are discovered again.
+     * @param batch          The generator used to regenerate changed sources.
+     * @param outputDir      The output directory to write the test files to.
+     * @param options        The flags controlling which test stubs are generated.
+     * @param debounceMillis How long the inputs must be quiet before changes are processed.
+     */
+    public SourceWatcher(List<String> inputs, List<Path> sources, Archives archives, BatchGenerator batch,
+                         String outputDir, GenerationOptions options, long debounceMillis) {
+        this.inputs = inputs;
+        this.sources = sources;
+        this.archives = archives;
+        this.batch = batch;
+        this.outputDir = outputDir;
+        this.options = options;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Watches the inputs until the thread is interrupted.
+     */
+    public void watch() throws IOException {
+        Predicate<Path> isInput = SourceDiscovery.filter(inputs);
+        Path output = Path.of(outputDir).toAbsolutePath().normalize();
+
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            for (SourceDiscovery.WatchRoot root : SourceDiscovery.roots(inputs)) {
+                if (root.recursive()) {
+                    register(service, root.dir());
+                } else {
+                    root.dir().register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                }
+            }
+            logger.log(Level.INFO, "Watching {0} for changes", inputs);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                // Block for the first event, then drain until the inputs have been quiet for the debounce window
+                Set<Path> changed = new TreeSet<>();
+                WatchKey key = service.take();
+                while (key != null) {
+                    collect(service, key, changed);
+                    key = service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+
+                // A deleted or moved away directory only reports itself, so any path that is gone counts too
+                long changedSources = changed.stream()
+                        .filter(p -> !p.startsWith(output))
+                        .filter(p -> isInput.test(p) || Files.notExists(p))
+                        .count();
+                if (changedSources == 0) continue;
+
+                long start = System.nanoTime();
+                try {
+                    update();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Failed to regenerate: {0}", e.getMessage());
+                    continue;
+                }
+                logger.log(Level.INFO, "Processed {0} changed source files in {1} ms",
+                        new Object[]{changedSources, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Discovers the inputs again, removes the test files of the sources that are gone and runs every source.
+     */
+    private void update() throws IOException, InterruptedException {
+        // A file or directory input that was deleted has no sources left, rather than being invalid
+        List<String> present = inputs.stream()
+                .filter(input -> SourceDiscovery.isGlob(input) || Files.exists(Path.of(input)))
+                .toList();
+        List<Path> current = SourceDiscovery.discover(present, archives);
+        Set<Path> remaining = new HashSet<>();
+        current.forEach(source -> remaining.add(source.toAbsolutePath().normalize()));
+        List<Path> removed = sources.stream()
+                .filter(source -> !remaining.contains(source.toAbsolutePath().normalize()))
+                .toList();
+
+        batch.remove(removed, Path.of(outputDir), options);
+        batch.run(current, outputDir, options);
+        sources = current;
+    }
+
+    /**
+     * Records the paths of a key's events, deleted ones included, and registers newly created directories.
+     */
+    private void collect(WatchService service, WatchKey key, Set<Path> changed) throws IOException {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                logger.log(Level.WARNING, "Missed file events in {0}", dir);
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && recursive.contains(dir) && Files.isDirectory(path)) {
+                // Sources may be moved in together with their directory, so pick those up as well
+                register(service, path);
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(Files::isRegularFile).forEach(changed::add);
+                }
+            } else {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Registers a directory and all of its subdirectories.
+     */
+    private void register(WatchService service, Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                recursive.add(dir);
+            }
+        }
+    }
+}
@@ -1,203 +1,306 @@
 package com.testgenie;
 
-import com.github.javaparser.ast.body.FieldDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.AssignExpr;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ParseProblemException;
+import com.testgenie.model.FieldModel;
+import com.testgenie.model.MethodModel;
+import com.testgenie.model.Scenario;
+import com.testgenie.model.SourceModel;
+import com.testgenie.model.TypeModel;
+import com.testgenie.template.TemplateSet;
+import com.testgenie.template.TemplateVar;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.testgenie.utils.StringUtil.*;
 
 /**
- * TestGenerator is responsible for generating a unit test file for a given Java source file.
- * It uses the JavaFileParser utility to extract class information and builds a test class
- * with JUnit 5 annotations and Mockito-style mocking.
+ * TestGenerator is responsible for generating unit test files for a given Java source file.
+ * It uses the JavaFileParser utility to parse the file once into a SourceModel and builds a test class
+ * with JUnit 5 annotations and Mockito-style mocking for each top-level and static nested type in it.
+ *
+ * The test class is rendered from the compiled templates of a TemplateSet and streamed as UTF-8
+ * into a temporary file next to its target, so memory use does not grow with the size of the class.
+ * Committing the temporary file only replaces the target when the bytes differ.
+ *
+ * In merge mode an existing test class is never replaced. Only the stub methods it is missing are added
+ * by the TestMerger, and the file is left untouched if there are none.
  */
 public class TestGenerator {
-    private static final String INDENT = "    ";
-    private static final String TEST_ANNOTATION = "@Test";
-    private static final String METHOD_END = "}\n\n";
-    private static final String VOID = "void ";
+    private static final String TEST_SUFFIX = "Test";
+    private static final String JAVA_EXTENSION = ".java";
     private static final Logger logger = Logger.getLogger(TestGenerator.class.getName());
 
+    private final TemplateSet templates;
+    private final boolean merge;
+
+    public TestGenerator() {
+        this(TemplateSet.defaults());
+    }
+
+    /**
+     * @param templates The templates test classes are rendered from.
+     */
+    public TestGenerator(TemplateSet templates) {
+        this(templates, false);
+    }
+
+    /**
+     * @param templates The templates test classes are rendered from.
+     * @param merge     Whether to add missing stubs to existing test classes instead of replacing them.
+     */
+    public TestGenerator(TemplateSet templates, boolean merge) {
+        this.templates = templates;
+        this.merge = merge;
+    }
+
+    public TemplateSet templates() {
+        return templates;
+    }
+
     /**
-     * Entry point to generate the test file.
+     * Entry point to generate the test files of a source file, one per top-level and static nested type.
      *
      * @param sourceFile The original Java file to generate test stubs for.
      * @param outputDir The output directory to write the test file to. This should be the output directory.
      */
     public void generateTestFile(File sourceFile, String outputDir, Set<String> flags, Set<String> ignoreFlags) {
-        StringBuilder testContent = new StringBuilder();
-        testContent.append("package com.testgenie.generated;\n\n")
-                .append("import org.junit.jupiter.api.BeforeEach;\n")
-                .append("import org.junit.jupiter.api.Test;\n")
-                .append("import org.mockito.InjectMocks;\n")
-                .append("import org.mockito.Mock;\n")
-                .append("import org.mockito.MockitoAnnotations;\n")
-                .append("\n")
-                .append("import static org.mockito.Mockito.*;\n")
-                .append("import static org.junit.jupiter.api.Assertions.*;\n\n");
-
-        // Parse class name from an input file
-        Optional<String> classNameOpt = JavaFileParser.parseClassOrInterfaceName(sourceFile);
-        if (classNameOpt.isEmpty()) {
+        GenerationOptions options = GenerationOptions.fromFlags(flags, ignoreFlags);
+        Path outDir = Path.of(outputDir);
+
+        // Parse the input file once into its analysis model
+        Optional<SourceModel> model = JavaFileParser.parse(sourceFile);
+        if (model.isPresent() && model.get().types().isEmpty()) {
             logger.log(Level.SEVERE, "Could not determine class name for file: {0}", sourceFile.getName());
-            return;
         }
+        model.stream()
+                .flatMap(source -> source.types().stream())
+                .forEach(type -> generate(type, options, outDir).ifPresent(test -> {
+                    try {
+                        commit(test, outDir);
+                    } catch (IOException e) {
+                        logger.log(Level.SEVERE, "Error writing test file: {0}", e.getMessage());
+                    }
+                }));
+    }
 
-        // Get class name and supporting method/field metadata
-        String className = classNameOpt.get();
-        String testClassName = className + "Test";
-        List<MethodDeclaration> methods = JavaFileParser.parseMethods(sourceFile);
-        List<FieldDeclaration> fields = JavaFileParser.parseFields(sourceFile);
-
-        // Generate private @Mock fields for the test methods
-        for (FieldDeclaration field : fields) {
-            if (field.isStatic()) continue;
-
-            String fieldType = field.getVariable(0).getTypeAsString();
-            String fieldName = field.getVariable(0).getNameAsString();
-
-            testContent.append(INDENT)
-                    .append("@Mock\n")
-                    .append(INDENT)
-                    .append("private ").append(fieldType).append(" ").append(fieldName).append(";\n\n");
+    /**
+     * The name of the test class generated for a type, e.g. CalculatorTest, or Outer_InnerTest for a nested type.
+     *
+     * @param type The analysis model of the type.
+     * @return The test class name.
+     */
+    public String testClassName(TypeModel type) {
+        return type.name().replace('.', '_') + TEST_SUFFIX;
+    }
+
+    /**
+     * Renders the test class of a type into a temporary file in the output directory.
+     * The test class only becomes visible once it is passed to {@link #commit(GeneratedTest, Path)}.
+     *
+     * @param type The analysis model of the type.
+     * @param options The flags controlling which test stubs are generated.
+     * @param outputDir The output directory the test class will be committed to.
+     * @return The rendered test class, or an empty Optional if it could not be rendered.
+     */
+    public Optional<GeneratedTest> generate(TypeModel type, GenerationOptions options, Path outputDir) {
+        String testClassName = testClassName(type);
+        Path temp = null;
+        try {
+            Files.createDirectories(outputDir);
+            // Not Files.createTempFile, its owner-only permissions would carry over to the committed file
+            temp = outputDir.resolve("." + testClassName + JAVA_EXTENSION + "." + UUID.randomUUID() + ".tmp");
+            Map<Scenario, Integer> stubCounts;
+            try (Writer out = newWriter(temp)) {
+                stubCounts = render(type, options, out);
+            }
+            return Optional.of(new GeneratedTest(testClassName, temp, stubCounts));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error writing test file: {0}", e.getMessage());
+            if (temp != null) discard(temp);
+            return Optional.empty();
         }
+    }
 
-        // Add @InjectMocks for the class under test
-        testContent.append(INDENT)
-                .append("@InjectMocks\n")
-                .append(INDENT)
-                .append("private ").append(className).append(" ").append(lowercaseFirst(className)).append(";\n\n");
+    /**
+     * Renders the test class of a type to a writer.
+     *
+     * @param type The analysis model of the type.
+     * @param options The flags controlling which test stubs are generated.
+     * @param out The writer to stream the test class to.
+     * @return The number of test stubs generated for each scenario.
+     */
+    public Map<Scenario, Integer> render(TypeModel type, GenerationOptions options, Writer out) throws IOException {
+        // Get class name and supporting method/field metadata
+        String[] values = new String[TemplateVar.values().length];
+        values[TemplateVar.CLASS_NAME.ordinal()] = type.name();
+        values[TemplateVar.INSTANCE_NAME.ordinal()] = lowercaseFirst(type.simpleName());
+        values[TemplateVar.TEST_CLASS_NAME.ordinal()] = testClassName(type);
+        values[TemplateVar.IMPORTS.ordinal()] = imports(type);
 
-        // Add @BeforeEach method to initialize mocks
-        testContent.append(INDENT)
-                .append("@BeforeEach\n")
-                .append(INDENT)
-                .append(VOID + "setUp() {\n")
-                .append(INDENT).append(INDENT)
-                .append("MockitoAnnotations.openMocks(this);\n")
-                .append(INDENT)
-                .append(METHOD_END);
+        templates.header().render(out, values);
 
-        GenerationOptions options = new GenerationOptions(flags, ignoreFlags);
+        // Generate private @Mock fields for the test methods, primitives and final JDK types cannot be mocked
+        for (FieldModel field : type.fields()) {
+            if (field.isStatic() || !field.type().isMockable()) continue;
 
-        // Iterate over public methods and generate condition-based test stubs
-        for (MethodDeclaration method : methods) {
-            // Only generate test methods for public methods
-            if (!method.isPublic()) continue;
-
-            // Store the method name, test method name and method body
-            String methodName = method.getNameAsString();
-            String testMethodName = "test" + capitalizeFirst(methodName);
-            BlockStmt body = method.getBody().orElse(new BlockStmt());
+            values[TemplateVar.FIELD_TYPE.ordinal()] = field.type().name();
+            values[TemplateVar.FIELD_NAME.ordinal()] = field.name();
+            templates.mockField().render(out, values);
+        }
 
-            // Capture the conditional variables based on class information being parsed
-            boolean hasNullCheck = body.toString().contains("== null") ||
-                    body.findAll(MethodCallExpr.class).stream().anyMatch(m -> m.getNameAsString().equals("requireNonNull"));
+        // Add @InjectMocks for the class under test and @BeforeEach method to initialize mocks
+        templates.injectMocks().render(out, values);
+        templates.setUp().render(out, values);
 
-            boolean throwsException = method.getThrownExceptions().isEmpty() ||
-                    body.findAll(ThrowStmt.class).isEmpty();
+        // Count the generated stubs per scenario for run statistics
+        Map<Scenario, Integer> stubCounts = new EnumMap<>(Scenario.class);
 
-            boolean hasConditional = body.findAll(IfStmt.class).isEmpty() || body.findAll(SwitchStmt.class).isEmpty();
+        // Iterate over public methods and generate condition-based test stubs
+        for (MethodModel method : type.methods()) {
+            // Only generate test methods for public methods
+            if (!method.isPublic()) continue;
 
-            boolean usesOptional = body.findAll(MethodCallExpr.class).stream().anyMatch(m -> m.getScope().map(Object::toString).orElse("").contains("Optional"));
+            // The detected scenarios that are also enabled by the flags
+            int stubs = options.filter(method.scenarios());
+            if (stubs == 0) continue;
 
-            boolean returnsBoolean = method.getType().asString().equals("boolean") ||
-                    body.findAll(ReturnStmt.class).stream().anyMatch(r -> r.toString().contains("true") || r.toString().contains("false"));
+            values[TemplateVar.METHOD_NAME.ordinal()] = method.name();
+            values[TemplateVar.TEST_METHOD_NAME.ordinal()] = "test" + capitalizeFirst(method.name());
+            values[TemplateVar.ARGUMENTS.ordinal()] = Placeholders.arguments(method);
+            values[TemplateVar.NULL_ARGUMENTS.ordinal()] = Placeholders.nullArguments(method);
 
-            boolean changesState = body.findAll(AssignExpr.class).stream()
-                    .anyMatch(a -> !a.getTarget().toString().contains("final"));
+            // Create the test stubs for every enabled scenario, in Scenario order
+            for (Scenario scenario : Scenario.values()) {
+                if (!scenario.isIn(stubs)) continue;
 
-            // Create the test stubs for any of the conditions above that are true
-            // Generate stub for null-check logic
-            if (hasNullCheck && options.shouldGenerate("null")) {
-                testContent.append(INDENT).append("@Test\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_nullCheck() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: verify null handling\n")
-                        .append(INDENT).append(INDENT).append("assertThrows(NullPointerException.class, () -> {\n")
-                        .append(INDENT).append(INDENT).append(INDENT).append(lowercaseFirst(className)).append(".").append(methodName).append("(null);\n")
-                        .append(INDENT).append(INDENT).append("});\n")
-                        .append(INDENT).append(METHOD_END);
+                templates.stub(scenario).render(out, values);
+                stubCounts.merge(scenario, 1, Integer::sum);
             }
+        }
 
-            // Generate stub for exception-throwing methods
-            if (throwsException && options.shouldGenerate("exceptions")) {
-                testContent.append(INDENT).append(TEST_ANNOTATION + "\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_throwsException() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: verify exception thrown\n")
-                        .append(INDENT).append(INDENT).append("assertThrows(Exception.class, () -> {\n")
-                        .append(INDENT).append(INDENT).append(INDENT).append(lowercaseFirst(className)).append(".").append(methodName).append("(...);\n")
-                        .append(INDENT).append(INDENT).append("});\n")
-                        .append(INDENT).append(METHOD_END);
-            }
+        // Close the test class
+        templates.footer().render(out, values);
+        return stubCounts;
+    }
 
-            // Generate stub for conditional logic (if/switch)
-            if (hasConditional && options.shouldGenerate("conditionals")) {
-                testContent.append(INDENT).append(TEST_ANNOTATION + "\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_conditionals() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: verify branching logic\n")
-                        .append(INDENT).append(INDENT).append("// Example: assertEquals(...)\n")
-                        .append(INDENT).append(METHOD_END);
-            }
+    /**
+     * The import declarations a test class needs to compile against its type: the type's own package
+     * and the imports of its source file. Empty for a type in the default package without imports,
+     * otherwise a block of lines set off by an empty line.
+     */
+    private static String imports(TypeModel type) {
+        StringBuilder imports = new StringBuilder();
+        if (!type.packageName().isEmpty()) imports.append("import ").append(type.packageName()).append(".*;\n");
+        for (String name : type.imports()) {
+            imports.append("import ").append(name).append(";\n");
+        }
+        return imports.isEmpty() ? "" : "\n" + imports;
+    }
 
-            // Generate stub for Optional-returning methods
-            if (usesOptional && options.shouldGenerate("options")) {
-                testContent.append(INDENT).append(TEST_ANNOTATION + "\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_returnsOptional() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: test Optional presence/absence\n")
-                        .append(INDENT).append(INDENT).append("Optional<?> result = ").append(lowercaseFirst(className)).append(".").append(methodName).append("(...);\n")
-                        .append(INDENT).append(INDENT).append("assertTrue(result.isPresent());\n")
-                        .append(INDENT).append(METHOD_END);
+    /**
+     * Moves a rendered test class to {@code <outputDir>/<TestClassName>.java}, or merges its missing stubs
+     * into the existing file in merge mode.
+     * The existing file is left untouched if it already has exactly this content, so its timestamp
+     * does not change and downstream builds do not see it as modified.
+     *
+     * @param test The rendered test class.
+     * @param outputDir The output directory to write the test file to.
+     * @return The number of bytes written, 0 if the file was unchanged.
+     * @throws IOException If the test file could not be written. The rendered test class is discarded.
+     */
+    public long commit(GeneratedTest test, Path outputDir) throws IOException {
+        Path testFile = outputDir.resolve(test.className() + JAVA_EXTENSION);
+        try {
+            if (merge && Files.isRegularFile(testFile)) {
+                Optional<byte[]> merged = merge(test, testFile);
+                if (merged.isEmpty()) {
+                    discard(test.file());
+                    return 0;
+                }
+                // The merged class replaces the rendered one in the temporary file, so it is moved the same way
+                Files.write(test.file(), merged.get());
+            } else if (Files.isRegularFile(testFile) && Files.mismatch(test.file(), testFile) == -1) {
+                logger.log(Level.FINE, "Test file unchanged: {0}", testFile.toAbsolutePath());
+                discard(test.file());
+                return 0;
             }
 
-            // Generate stub for boolean-returning methods
-            if (returnsBoolean && options.shouldGenerate("booleans")) {
-                testContent.append(INDENT).append(TEST_ANNOTATION + "\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_returnsBoolean() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: test true/false conditions\n")
-                        .append(INDENT).append(INDENT).append("boolean result = ").append(lowercaseFirst(className)).append(".").append(methodName).append("(...);\n")
-                        .append(INDENT).append(INDENT).append("assertTrue(result);\n")
-                        .append(INDENT).append(METHOD_END);
+            long size = Files.size(test.file());
+            try {
+                Files.move(test.file(), testFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(test.file(), testFile, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            // Generate stub for state-changing methods
-            if (changesState && options.shouldGenerate("state")) {
-                testContent.append(INDENT).append(TEST_ANNOTATION + "\n")
-                        .append(INDENT).append(VOID).append(testMethodName).append("_changesState() {\n")
-                        .append(INDENT).append(INDENT).append("// TODO: verify side effects or state changes\n")
-                        .append(INDENT).append(INDENT).append(lowercaseFirst(className)).append(".").append(methodName).append("(...);\n")
-                        .append(INDENT).append(INDENT).append("// assertEquals(expected, ...)\n")
-                        .append(INDENT).append(METHOD_END);
-            }
+            logger.log(Level.INFO, "Generated test file: {0}", testFile.toAbsolutePath());
+            return size;
+        } catch (IOException e) {
+            discard(test.file());
+            throw e;
         }
+    }
 
-        // Class the test class
-        testContent.append("}");
-
-        // Write the contents to the output file in the expected output directory
+    /**
+     * Merges the missing stubs of a rendered test class into its existing test file.
+     *
+     * @return The merged content, or an empty Optional if nothing is missing or the existing file cannot be parsed.
+     */
+    private Optional<byte[]> merge(GeneratedTest test, Path testFile) throws IOException {
         try {
-            File outDir = new File(outputDir);
-            if (!outDir.exists()) outDir.mkdirs();
+            Optional<byte[]> merged = TestMerger.merge(Files.readAllBytes(testFile),
+                    Files.readString(test.file(), StandardCharsets.UTF_8));
+            if (merged.isEmpty()) logger.log(Level.FINE, "Test file has every stub: {0}", testFile.toAbsolutePath());
+            return merged;
+        } catch (ParseProblemException e) {
+            // Never replace a hand-edited test class that cannot be merged safely
+            logger.log(Level.SEVERE, "Could not merge into {0}, it does not parse: {1}",
+                    new Object[]{testFile.toAbsolutePath(), e.getMessage()});
+            return Optional.empty();
+        }
+    }
 
-            File testFile = new File(outDir, testClassName + ".java");
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(testFile))) {
-                writer.write(testContent.toString());
-            }
+    private static Writer newWriter(Path temp) throws IOException {
+        if (temp.getFileSystem() == FileSystems.getDefault()) {
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return Channels.newWriter(channel, StandardCharsets.UTF_8);
+        }
+        // An output archive: the zip file system stores entries written through a FileChannel with a corrupt
+        // compressed size once they are moved, so its own output stream is used instead
+        return new OutputStreamWriter(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes a rendered test class that will not be committed.
+     */
+    public void discard(GeneratedTest test) {
+        discard(test.file());
+    }
 
-            logger.log(Level.INFO, "Generated test file: {0}", testFile.getAbsolutePath());
+    private static void discard(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing test file: {0}", e.getMessage());
+            logger.log(Level.WARNING, "Could not delete temporary file: {0}", temp);
         }
     }
 }
@@ -0,0 +1,105 @@
+package com.testgenie;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * TestMerger adds the stub methods of a freshly rendered test class that an existing test class does not have yet.
+ *
+ * Methods are matched by name. The source text of each missing method is copied from the rendered class
+ * and inserted before the closing brace of the existing class. Every other byte of the existing file is
+ * kept as it is, so hand-written test bodies, formatting and comments survive a regeneration.
+ */
+public final class TestMerger {
+    // Token ranges are needed to copy the source text of the missing methods
+    private static final ThreadLocal<JavaParser> PARSER =
+            ThreadLocal.withInitial(() -> new JavaParser(JavaFileParser.configuration().setStoreTokens(true)));
+
+    private TestMerger() {
+        throw new UnsupportedOperationException(TestMerger.class.getName() + " cannot be instantiated.");
+    }
+
+    /**
+     * Merges the missing stub methods of a rendered test class into an existing one.
+     *
+     * @param existing The content of the existing test file.
+     * @param rendered The freshly rendered test class.
+     * @return The merged content, or an empty Optional if the existing class already has every method.
+     * @throws ParseProblemException If either class cannot be parsed.
+     */
+    public static Optional<byte[]> merge(byte[] existing, String rendered) {
+        Set<String> existingMethods = parse(new String(existing, StandardCharsets.UTF_8))
+                .findAll(MethodDeclaration.class).stream()
+                .map(MethodDeclaration::getNameAsString)
+                .collect(Collectors.toSet());
+
+        List<MethodDeclaration> missing = parse(rendered).findAll(MethodDeclaration.class).stream()
+                .filter(method -> !existingMethods.contains(method.getNameAsString()))
+                .toList();
+        if (missing.isEmpty()) return Optional.empty();
+
+        // The methods are copied line by line, including their indentation, each followed by a blank line
+        String[] lines = rendered.split("\n", -1);
+        StringBuilder stubs = new StringBuilder();
+        for (MethodDeclaration method : missing) {
+            int begin = method.getBegin().orElseThrow().line;
+            int end = method.getEnd().orElseThrow().line;
+            for (String line : Arrays.asList(lines).subList(begin - 1, end)) {
+                stubs.append(line).append('\n');
+            }
+            stubs.append('\n');
+        }
+
+        int closingBrace = lastIndexOf(existing, (byte) '}');
+        if (closingBrace < 0) throw new IllegalStateException("Existing test class has no closing brace");
+        // Keep a blank line between the last existing member and the first added one
+        if (!endsWithBlankLine(existing, closingBrace)) stubs.insert(0, '\n');
+
+        ByteArrayOutputStream merged = new ByteArrayOutputStream(existing.length + stubs.length());
+        merged.write(existing, 0, closingBrace);
+        merged.writeBytes(stubs.toString().getBytes(StandardCharsets.UTF_8));
+        merged.write(existing, closingBrace, existing.length - closingBrace);
+        return Optional.of(merged.toByteArray());
+    }
+
+    private static CompilationUnit parse(String content) {
+        ParseResult<CompilationUnit> result = PARSER.get().parse(content);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
+    }
+
+    private static int lastIndexOf(byte[] content, byte value) {
+        for (int i = content.length - 1; i >= 0; i--) {
+            if (content[i] == value) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Whether the content before the given index ends with an empty or whitespace-only line.
+     */
+    private static boolean endsWithBlankLine(byte[] content, int index) {
+        int newlines = 0;
+        for (int i = index - 1; i >= 0; i--) {
+            if (content[i] == '\n') {
+                if (++newlines == 2) return true;
+            } else if (content[i] != ' ' && content[i] != '\t' && content[i] != '\r') {
+                return false;
+            }
+        }
+        return false;
+    }
+}
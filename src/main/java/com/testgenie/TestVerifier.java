@@ -0,0 +1,185 @@
+package com.testgenie;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * TestVerifier checks that the generated test classes compile, for --verify.
+ *
+ * Every test class in the output directory is compiled in a single in-process javax.tools compilation,
+ * against a classpath that has to provide the classes under test, JUnit 5 and Mockito.
+ * Sources are handed to the compiler from memory and the class files it produces are discarded,
+ * so verification writes nothing to disk.
+ *
+ * Each compile error is mapped back to the test class and the stub method it occurs in,
+ * which points at the template or scenario that produced uncompilable code.
+ */
+public class TestVerifier {
+    private static final String JAVA_EXTENSION = ".java";
+
+    private final List<Path> classpath;
+
+    /**
+     * A compile error in a generated test class.
+     *
+     * @param testClass The test class the error is in, or null if it is not in any, e.g. an invalid classpath.
+     * @param stub      The test method the error is in, or null if it is outside of any method.
+     * @param line      The line of the error, or -1 if it has none.
+     * @param message   The compiler's message.
+     */
+    public record Problem(String testClass, String stub, long line, String message) {
+        @Override
+        public String toString() {
+            if (testClass == null) return message;
+            String location = stub == null ? testClass : testClass + "." + stub;
+            return location + " (line " + line + "): " + message;
+        }
+    }
+
+    /**
+     * @param classpath The jars and class directories the test classes are compiled against.
+     */
+    public TestVerifier(List<Path> classpath) {
+        this.classpath = List.copyOf(classpath);
+    }
+
+    /**
+     * Compiles every test class in an output directory.
+     *
+     * @param outputDir The output directory, or the root of an output archive.
+     * @return The compile errors, empty if every test class compiles.
+     * @throws IOException           If the test classes cannot be read.
+     * @throws IllegalStateException If this JVM has no Java compiler, as is the case for a JRE.
+     */
+    public List<Problem> verify(Path outputDir) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("--verify needs a JDK, this Java runtime has no compiler");
+        }
+
+        List<TestSource> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(JAVA_EXTENSION)).sorted().toList()) {
+                sources.add(new TestSource(file, Files.readString(file, StandardCharsets.UTF_8)));
+            }
+        }
+        if (sources.isEmpty()) return List.of();
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+        try (DiscardingFileManager fileManager = new DiscardingFileManager(standard)) {
+            standard.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+            // Annotation processors on the classpath would only slow the check down
+            List<String> options = List.of("-proc:none", "-nowarn", "-Xlint:none");
+            compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+        }
+
+        List<Problem> problems = new ArrayList<>();
+        Map<TestSource, Optional<CompilationUnit>> parsed = new HashMap<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+
+            // e.g. "cannot find symbol, symbol: class Calculator, location: class CalculatorTest"
+            String message = String.join(", ", diagnostic.getMessage(Locale.ROOT).lines()
+                    .map(line -> line.strip().replaceAll("\\s+", " "))
+                    .toList());
+            if (!(diagnostic.getSource() instanceof TestSource source)) {
+                problems.add(new Problem(null, null, -1, message));
+                continue;
+            }
+            long line = diagnostic.getLineNumber();
+            Optional<CompilationUnit> compUnit = parsed.computeIfAbsent(source, TestVerifier::parse);
+            problems.add(new Problem(source.className(), stubAt(compUnit, line), line, message));
+        }
+        return problems;
+    }
+
+    /**
+     * The name of the method a line is in, or null if it is in none or the test class does not parse.
+     */
+    private static String stubAt(Optional<CompilationUnit> compUnit, long line) {
+        if (compUnit.isEmpty() || line < 0) return null;
+        return compUnit.get().findFirst(MethodDeclaration.class, method -> method.getRange()
+                        .map(range -> range.begin.line <= line && line <= range.end.line)
+                        .orElse(false))
+                .map(MethodDeclaration::getNameAsString)
+                .orElse(null);
+    }
+
+    private static Optional<CompilationUnit> parse(TestSource source) {
+        // Token ranges are needed to find the method of a line
+        JavaParser parser = new JavaParser(JavaFileParser.configuration().setStoreTokens(true));
+        ParseResult<CompilationUnit> result = parser.parse(source.content);
+        return result.isSuccessful() ? result.getResult() : Optional.empty();
+    }
+
+    /**
+     * A test class handed to the compiler from memory.
+     */
+    private static final class TestSource extends SimpleJavaFileObject {
+        private final String className;
+        private final String content;
+
+        TestSource(Path file, String content) {
+            super(URI.create("string:///" + file.getFileName()), Kind.SOURCE);
+            String fileName = file.getFileName().toString();
+            this.className = fileName.substring(0, fileName.length() - JAVA_EXTENSION.length());
+            this.content = content;
+        }
+
+        String className() {
+            return className;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * Reads from the standard file manager but throws away every class file the compiler writes.
+     */
+    private static final class DiscardingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        DiscardingFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("discard:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.testgenie.model;
+
+/**
+ * A field declaration, reduced to its first variable.
+ *
+ * @param name     The name of the field.
+ * @param type     The declared type of the field.
+ * @param isStatic Whether the field is static.
+ */
+public record FieldModel(String name, TypeRef type, boolean isStatic) {
+}
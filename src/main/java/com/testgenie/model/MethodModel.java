@@ -0,0 +1,24 @@
+package com.testgenie.model;
+
+import java.util.List;
+
+/**
+ * A method declaration and the scenarios detected in its body.
+ *
+ * @param name       The name of the method.
+ * @param isPublic   Whether the method is public.
+ * @param scenarios  The detected scenarios as a bit set of {@link Scenario#mask()} values.
+ * @param parameters The types of the parameters, in declaration order.
+ */
+public record MethodModel(String name, boolean isPublic, int scenarios, List<TypeRef> parameters) {
+    public MethodModel {
+        parameters = List.copyOf(parameters);
+    }
+
+    /**
+     * Checks whether the given scenario was detected in this method.
+     */
+    public boolean has(Scenario scenario) {
+        return scenario.isIn(scenarios);
+    }
+}
@@ -0,0 +1,76 @@
+package com.testgenie.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The test scenarios TestGenie can detect in a method.
+ * Each scenario owns one bit so that the scenarios of a method fit in a single int,
+ * and has the --flag/--ignore name used to select it on the command line.
+ */
+public enum Scenario {
+    NULL_CHECK("nulls", "null"),
+    EXCEPTION("exceptions"),
+    CONDITIONAL("conditionals"),
+    OPTIONAL("optionals", "options"),
+    BOOLEAN("booleans"),
+    STATE_CHANGE("state");
+
+    /**
+     * The bit set containing every scenario.
+     */
+    public static final int ALL = (1 << values().length) - 1;
+
+    private final String flag;
+    private final List<String> aliases;
+
+    Scenario(String flag, String... aliases) {
+        this.flag = flag;
+        this.aliases = List.of(aliases);
+    }
+
+    /**
+     * The name of this scenario on the command line, e.g. "nulls".
+     */
+    public String flag() {
+        return flag;
+    }
+
+    /**
+     * The bit representing this scenario in a scenario set.
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Checks whether this scenario is present in the given scenario set.
+     */
+    public boolean isIn(int scenarios) {
+        return (scenarios & mask()) != 0;
+    }
+
+    /**
+     * Resolves a command line flag, or one of its aliases, to its scenario.
+     *
+     * @param flag the flag name, case-insensitive
+     * @return the matching scenario
+     * @throws IllegalArgumentException if no scenario has that flag
+     */
+    public static Scenario fromFlag(String flag) {
+        String name = flag.trim().toLowerCase(Locale.ROOT);
+        for (Scenario scenario : values()) {
+            if (scenario.flag.equals(name) || scenario.aliases.contains(name)) return scenario;
+        }
+        throw new IllegalArgumentException("Unknown flag '" + flag + "', expected one of: " + flags());
+    }
+
+    /**
+     * The command line flags of all scenarios, comma separated.
+     */
+    public static String flags() {
+        return Arrays.stream(values()).map(Scenario::flag).collect(Collectors.joining(", "));
+    }
+}
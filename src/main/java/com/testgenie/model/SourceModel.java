@@ -0,0 +1,19 @@
+package com.testgenie.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Immutable analysis model of a single Java source file.
+ * It is produced by one parse of the file and holds everything the TestGenerator needs,
+ * so the AST itself can be discarded as soon as the model is built.
+ *
+ * @param source The path of the parsed source file.
+ * @param types  The top-level and static nested classes and interfaces of the file, outer types first.
+ *               Each of them gets its own test class.
+ */
+public record SourceModel(Path source, List<TypeModel> types) {
+    public SourceModel {
+        types = List.copyOf(types);
+    }
+}
@@ -0,0 +1,28 @@
+package com.testgenie.model;
+
+import java.util.List;
+
+/**
+ * A class or interface declaration together with the fields and methods it declares.
+ *
+ * @param packageName The package of the source file, empty for the default package.
+ * @param name        The name of the type within its package, e.g. "Outer.Inner" for a nested type.
+ * @param imports     The non-static imports of the source file, e.g. "java.util.Optional" or "java.util.*".
+ * @param fields      The fields declared directly by this type.
+ * @param methods     The methods declared directly by this type.
+ */
+public record TypeModel(String packageName, String name, List<String> imports, List<FieldModel> fields,
+                        List<MethodModel> methods) {
+    public TypeModel {
+        imports = List.copyOf(imports);
+        fields = List.copyOf(fields);
+        methods = List.copyOf(methods);
+    }
+
+    /**
+     * The simple name of the type, e.g. "Inner" for "Outer.Inner".
+     */
+    public String simpleName() {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.testgenie.model;
+
+/**
+ * A reference to a type from a field or parameter declaration.
+ *
+ * @param name          The type as written in the source, e.g. "List<String>" or "int[]".
+ * @param rawName       The type as written without type arguments, e.g. "List" or "int[]".
+ * @param qualifiedName The binary name the type resolved to, e.g. "java.util.List", or null if it was not resolved.
+ * @param kind          What the type is, as far as it was resolved.
+ */
+public record TypeRef(String name, String rawName, String qualifiedName, Kind kind) {
+    /**
+     * What a referenced type is. Only PRIMITIVE and ARRAY are known without symbol resolution.
+     */
+    public enum Kind {
+        /** A primitive type such as int or boolean. */
+        PRIMITIVE,
+        /** An array type, including varargs. */
+        ARRAY,
+        /** A final JDK type such as String or Integer, which is used as a value and never mocked. */
+        VALUE,
+        /** A resolved class or interface that can be mocked. */
+        REFERENCE,
+        /** A type that was not resolved, e.g. a type variable or any class when resolution is disabled. */
+        UNRESOLVED
+    }
+
+    /**
+     * Whether a mock of this type can be created. Unresolved types are assumed to be mockable.
+     */
+    public boolean isMockable() {
+        return kind == Kind.REFERENCE || kind == Kind.UNRESOLVED;
+    }
+}
@@ -0,0 +1,165 @@
+package com.testgenie.resolve;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.testgenie.model.TypeRef;
+import com.testgenie.utils.HashUtil;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * TypeIndex answers what a fully qualified type is: a final JDK type, another class, or unknown.
+ *
+ * Types are looked up in the JDK and an optional classpath of jars and class directories, which can include
+ * the compiled classes of the project itself. Classes are loaded without being initialized, and only
+ * the resulting kind is kept in a bounded least-recently-used cache.
+ *
+ * One index is created per run and shared by every worker thread, so a type used across many files is
+ * looked up once. A disabled index resolves nothing, which leaves every class type UNRESOLVED.
+ */
+public final class TypeIndex implements AutoCloseable {
+    private static final int CACHE_SIZE = 8192;
+    private static final TypeIndex DISABLED = new TypeIndex(null, List.of());
+    private static final TypeResolver UNRESOLVED = new TypeResolver(DISABLED);
+
+    private final URLClassLoader loader;
+    private final List<Path> classpath;
+    private volatile String fingerprint;
+    private final Map<String, TypeRef.Kind> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TypeRef.Kind> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private TypeIndex(URLClassLoader loader, List<Path> classpath) {
+        this.loader = loader;
+        this.classpath = classpath;
+    }
+
+    /**
+     * Creates an index that resolves nothing.
+     */
+    public static TypeIndex disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates an index over the JDK and the given classpath.
+     *
+     * @param classpath Jars and class directories to resolve project and dependency types from.
+     * @throws IllegalArgumentException If an entry cannot be turned into a URL.
+     */
+    public static TypeIndex of(List<Path> classpath) {
+        List<URL> urls = new ArrayList<>();
+        for (Path entry : classpath) {
+            try {
+                urls.add(entry.toAbsolutePath().toUri().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid classpath entry: " + entry, e);
+            }
+        }
+        // The platform loader as parent keeps TestGenie's own dependencies out of resolution
+        URLClassLoader loader = new URLClassLoader("testgenie-types", urls.toArray(URL[]::new),
+                ClassLoader.getPlatformClassLoader());
+        return new TypeIndex(loader, List.copyOf(classpath));
+    }
+
+    public boolean isEnabled() {
+        return loader != null;
+    }
+
+    /**
+     * Everything the resolved kinds depend on, for the GenerationManifest: the JDK version and the content of
+     * the classpath entries, not their location, so moving a project does not regenerate its tests.
+     * It is computed once per index.
+     */
+    public String fingerprint() {
+        if (!isEnabled()) return "none";
+        String result = fingerprint;
+        if (result == null) {
+            result = "jdk-" + Runtime.version().feature() + ":" + classpath.stream()
+                    .map(TypeIndex::contentHash)
+                    .collect(Collectors.joining(","));
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * The hash of a jar, or of the relative paths and contents of the files in a class directory.
+     */
+    private static String contentHash(Path entry) {
+        try {
+            if (!Files.isDirectory(entry)) {
+                return Files.isRegularFile(entry) ? HashUtil.sha256(Files.readAllBytes(entry)) : "missing";
+            }
+            StringBuilder files = new StringBuilder();
+            try (Stream<Path> walk = Files.walk(entry)) {
+                for (Path file : walk.filter(Files::isRegularFile).sorted().toList()) {
+                    files.append(entry.relativize(file)).append('=')
+                            .append(HashUtil.sha256(Files.readAllBytes(file))).append('\n');
+                }
+            }
+            return HashUtil.sha256(files.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Changes to an entry that cannot be read are not detected, as the class loader cannot read it either
+            return "unreadable";
+        }
+    }
+
+    /**
+     * Creates the resolver for the type names used in one source file.
+     */
+    public TypeResolver resolverFor(CompilationUnit compUnit) {
+        // Nothing is looked up, so the declarations of the file are not needed
+        if (!isEnabled()) return UNRESOLVED;
+        return new TypeResolver(this, compUnit);
+    }
+
+    /**
+     * Looks up a type by its binary name, e.g. "java.util.Map$Entry".
+     *
+     * @return VALUE for final JDK types, REFERENCE for any other type, UNRESOLVED if the type does not exist.
+     */
+    TypeRef.Kind lookup(String binaryName) {
+        if (!isEnabled()) return TypeRef.Kind.UNRESOLVED;
+        TypeRef.Kind kind = cache.get(binaryName);
+        if (kind == null) {
+            // Loading happens outside the cache lock; two threads may load the same class, which is harmless
+            kind = load(binaryName);
+            cache.put(binaryName, kind);
+        }
+        return kind;
+    }
+
+    private TypeRef.Kind load(String binaryName) {
+        try {
+            Class<?> type = Class.forName(binaryName, false, loader);
+            boolean jdk = type.getClassLoader() == null || type.getClassLoader() == ClassLoader.getPlatformClassLoader();
+            boolean isFinal = Modifier.isFinal(type.getModifiers()) || type.isEnum() || type.isRecord();
+            return jdk && isFinal ? TypeRef.Kind.VALUE : TypeRef.Kind.REFERENCE;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return TypeRef.Kind.UNRESOLVED;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (loader != null) loader.close();
+    }
+}
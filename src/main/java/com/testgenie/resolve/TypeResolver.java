@@ -0,0 +1,148 @@
+package com.testgenie.resolve;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithTypeParameters;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.testgenie.model.TypeRef;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * TypeResolver resolves the type names of one source file the way the compiler would look them up:
+ * types declared in the file, single-type imports, the file's own package, on-demand imports and finally java.lang.
+ *
+ * It only reads the package and import declarations of the file and the names of its types and their member
+ * types, never method bodies, so it is cheap to create per file. The lookups themselves go through the shared
+ * TypeIndex. A disabled index hands out one shared resolver that reads nothing, as it resolves no class type.
+ */
+public final class TypeResolver {
+    private final TypeIndex index;
+    private final String packagePrefix;
+    private final List<String> singleImports = new ArrayList<>();
+    private final List<String> onDemandImports = new ArrayList<>();
+    private final Set<String> declaredTypes = new HashSet<>();
+
+    /**
+     * A resolver that leaves every class type UNRESOLVED, for a disabled index.
+     */
+    TypeResolver(TypeIndex index) {
+        this.index = index;
+        this.packagePrefix = "";
+    }
+
+    TypeResolver(TypeIndex index, CompilationUnit compUnit) {
+        this.index = index;
+        this.packagePrefix = compUnit.getPackageDeclaration()
+                .map(declaration -> declaration.getNameAsString() + ".")
+                .orElse("");
+        for (ImportDeclaration declaration : compUnit.getImports()) {
+            if (declaration.isStatic()) continue;
+            (declaration.isAsterisk() ? onDemandImports : singleImports).add(declaration.getNameAsString());
+        }
+        compUnit.getTypes().forEach(this::addDeclaredType);
+    }
+
+    /**
+     * Adds the name of a type and of all the types nested in it.
+     */
+    private void addDeclaredType(TypeDeclaration<?> type) {
+        declaredTypes.add(type.getNameAsString());
+        for (BodyDeclaration<?> member : type.getMembers()) {
+            if (member instanceof TypeDeclaration<?> nested) addDeclaredType(nested);
+        }
+    }
+
+    /**
+     * Resolves a declared type.
+     *
+     * @param type           The type of a field or parameter.
+     * @param typeParameters The type variables in scope, which are never resolved to classes.
+     */
+    public TypeRef resolve(Type type, Set<String> typeParameters) {
+        String name = type.asString();
+        if (type.isPrimitiveType()) {
+            return new TypeRef(name, name, name, TypeRef.Kind.PRIMITIVE);
+        }
+        if (type instanceof ArrayType array) {
+            String elementName = rawName(array.getElementType());
+            // An array of a type variable cannot be created, so it is only known as an unresolved type
+            TypeRef.Kind kind = typeParameters.contains(elementName) ? TypeRef.Kind.UNRESOLVED : TypeRef.Kind.ARRAY;
+            return new TypeRef(name, elementName + "[]".repeat(array.getArrayLevel()), null, kind);
+        }
+        if (!(type instanceof ClassOrInterfaceType classType)) {
+            return new TypeRef(name, name, null, TypeRef.Kind.UNRESOLVED);
+        }
+
+        String rawName = classType.getNameWithScope();
+        if (!index.isEnabled() || typeParameters.contains(rawName)) {
+            return new TypeRef(name, rawName, null, TypeRef.Kind.UNRESOLVED);
+        }
+        // Declared in this file, so it is a class of the project even if it is not on the classpath
+        if (declaredTypes.contains(rawName)) {
+            String binaryName = packagePrefix + rawName;
+            TypeRef.Kind kind = index.lookup(binaryName);
+            return new TypeRef(name, rawName, binaryName, kind == TypeRef.Kind.UNRESOLVED ? TypeRef.Kind.REFERENCE : kind);
+        }
+
+        for (String candidate : candidates(rawName)) {
+            TypeRef.Kind kind = index.lookup(candidate);
+            if (kind != TypeRef.Kind.UNRESOLVED) return new TypeRef(name, rawName, candidate, kind);
+        }
+        return new TypeRef(name, rawName, null, TypeRef.Kind.UNRESOLVED);
+    }
+
+    /**
+     * The type variables declared by a class or method.
+     */
+    public static Set<String> typeParameters(NodeWithTypeParameters<?> declaration) {
+        Set<String> names = new HashSet<>();
+        for (TypeParameter parameter : declaration.getTypeParameters()) {
+            names.add(parameter.getNameAsString());
+        }
+        return names;
+    }
+
+    /**
+     * The binary names a type name can refer to, in the order the compiler would try them.
+     * For {@code Map.Entry} the first segment is looked up and the rest becomes nested, e.g. {@code java.util.Map$Entry}.
+     */
+    private List<String> candidates(String rawName) {
+        int dot = rawName.indexOf('.');
+        String head = dot < 0 ? rawName : rawName.substring(0, dot);
+        String nested = dot < 0 ? "" : rawName.substring(dot).replace('.', '$');
+
+        List<String> candidates = new ArrayList<>();
+        for (String single : singleImports) {
+            if (single.equals(head) || single.endsWith("." + head)) candidates.add(single + nested);
+        }
+        candidates.add(packagePrefix + head + nested);
+        for (String onDemand : onDemandImports) {
+            candidates.add(onDemand + "." + head + nested);
+        }
+        candidates.add("java.lang." + head + nested);
+
+        // A fully qualified name, where any trailing segments may be nested types
+        if (dot > 0) {
+            String binaryName = rawName;
+            candidates.add(binaryName);
+            for (int last = binaryName.lastIndexOf('.'); last > 0; last = binaryName.lastIndexOf('.')) {
+                binaryName = binaryName.substring(0, last) + "$" + binaryName.substring(last + 1);
+                candidates.add(binaryName);
+            }
+        }
+        return candidates;
+    }
+
+    private static String rawName(Type type) {
+        return type instanceof ClassOrInterfaceType classType ? classType.getNameWithScope() : type.asString();
+    }
+}
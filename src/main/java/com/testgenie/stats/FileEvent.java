@@ -0,0 +1,36 @@
+package com.testgenie.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event summarizing a source file once all of its phases are done.
+ */
+@Name("com.testgenie.File")
+@Label("TestGenie File")
+@Category("TestGenie")
+@Description("Generation of a single source file")
+class FileEvent extends jdk.jfr.Event {
+    @Label("Source")
+    String source;
+
+    @Label("Status")
+    String status;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("AST Nodes")
+    long astNodes;
+
+    @Label("Stubs")
+    int stubs;
+}
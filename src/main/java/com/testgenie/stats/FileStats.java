@@ -0,0 +1,180 @@
+package com.testgenie.stats;
+
+import com.testgenie.model.Scenario;
+import jdk.jfr.FlightRecorder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * FileStats collects the measurements of a single source file.
+ *
+ * An instance is filled by the worker threads processing the file and handed to RunStats once the file is done.
+ * The types of one file are rendered concurrently, so the same phase can be timed by several threads at once;
+ * their durations add up. Every phase is also emitted as a JFR PhaseEvent.
+ *
+ * Loading the first event class sets up the JFR event machinery, which costs about as much as parsing a file,
+ * so events are only created while Flight Recorder is initialized, e.g. by -XX:StartFlightRecording
+ * or a later jcmd JFR.start. Files started before that are not recorded.
+ */
+public class FileStats {
+    /**
+     * How processing of a source file ended.
+     */
+    public enum Status {
+        GENERATED,
+        SKIPPED,
+        FILTERED,
+        // Over one of the per-file limits of the run
+        REJECTED,
+        FAILED
+    }
+
+    private final Path source;
+    // Nanoseconds spent per phase, -1 for phases the file never reached
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final Map<Scenario, Integer> stubCounts = new EnumMap<>(Scenario.class);
+    // Null when Flight Recorder was not initialized as the file started
+    private final FileEvent fileEvent;
+    private Status status = Status.FAILED;
+    private long bytesRead;
+    private long bytesWritten;
+    private long astNodes;
+    private volatile String reason;
+
+    public FileStats(Path source) {
+        this.source = source;
+        Arrays.fill(phaseNanos, -1);
+        fileEvent = FlightRecorder.isInitialized() ? new FileEvent() : null;
+        if (fileEvent != null) fileEvent.begin();
+    }
+
+    /**
+     * A running measurement of one phase.
+     */
+    public final class Timer {
+        private final Phase phase;
+        private final PhaseEvent event;
+        private final long start;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            event = fileEvent == null ? null : new PhaseEvent();
+            if (event != null) event.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Stops timing and adds the duration to the phase.
+         */
+        public void stop() {
+            add(phase, System.nanoTime() - start);
+            if (event == null) return;
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source.toString();
+                event.phase = phase.label();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return The timer to stop once the phase is done.
+     */
+    public Timer start(Phase phase) {
+        return new Timer(phase);
+    }
+
+    private synchronized void add(Phase phase, long nanos) {
+        int i = phase.ordinal();
+        phaseNanos[i] = phaseNanos[i] < 0 ? nanos : phaseNanos[i] + nanos;
+    }
+
+    /**
+     * Marks the file as done and emits its JFR FileEvent.
+     */
+    public void finish(Status status) {
+        this.status = status;
+        if (fileEvent == null) return;
+        fileEvent.end();
+        if (fileEvent.shouldCommit()) {
+            fileEvent.source = source.toString();
+            fileEvent.status = status.name();
+            fileEvent.bytesRead = bytesRead;
+            fileEvent.bytesWritten = bytesWritten;
+            fileEvent.astNodes = astNodes;
+            fileEvent.stubs = stubCounts.values().stream().mapToInt(Integer::intValue).sum();
+            fileEvent.commit();
+        }
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    public synchronized void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    public void setAstNodes(long astNodes) {
+        this.astNodes = astNodes;
+    }
+
+    public synchronized void addStubs(Map<Scenario, Integer> counts) {
+        counts.forEach((scenario, count) -> stubCounts.merge(scenario, count, Integer::sum));
+    }
+
+    public Path source() {
+        return source;
+    }
+
+    /**
+     * @return Why the file was rejected or failed, or null if it was not or the reason is unknown.
+     */
+    public String reason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return The nanoseconds spent in the phase, or -1 if the file never reached it.
+     */
+    public long nanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return The nanoseconds spent in all phases the file went through.
+     */
+    public long totalNanos() {
+        return Arrays.stream(phaseNanos).filter(nanos -> nanos > 0).sum();
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public long astNodes() {
+        return astNodes;
+    }
+
+    public Map<Scenario, Integer> stubCounts() {
+        return stubCounts;
+    }
+}
@@ -0,0 +1,21 @@
+package com.testgenie.stats;
+
+import java.util.Locale;
+
+/**
+ * The phases a source file goes through while its test class is generated.
+ */
+public enum Phase {
+    READ,
+    PARSE,
+    DETECT,
+    RENDER,
+    WRITE;
+
+    /**
+     * The lowercase name used in reports, e.g. "parse".
+     */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,22 @@
+package com.testgenie.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering one phase of one source file, so batch runs can be profiled with
+ * standard tooling, e.g. {@code -XX:StartFlightRecording:filename=run.jfr}.
+ */
+@Name("com.testgenie.Phase")
+@Label("TestGenie Phase")
+@Category("TestGenie")
+@Description("One generation phase of a single source file")
+class PhaseEvent extends jdk.jfr.Event {
+    @Label("Source")
+    String source;
+
+    @Label("Phase")
+    String phase;
+}
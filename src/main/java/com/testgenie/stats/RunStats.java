@@ -0,0 +1,188 @@
+package com.testgenie.stats;
+
+import com.testgenie.Archives;
+import com.testgenie.model.Scenario;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.testgenie.utils.StringUtil.escapeJson;
+
+/**
+ * RunStats aggregates the FileStats of every source processed in a run and writes them
+ * as a JSON report for --stats.
+ *
+ * The report contains:
+ * - File counts by status, total wall time, bytes read and written, AST nodes and stubs per scenario.
+ * - Per phase: total time and the p50, p90, p99 and max per-file durations.
+ * - The slowest files with their per-phase breakdown.
+ * - Every rejected or failed file with the reason.
+ *
+ * A disabled RunStats records nothing, so callers can always report to it.
+ */
+public class RunStats {
+    private static final Logger logger = Logger.getLogger(RunStats.class.getName());
+    private static final int SLOWEST_FILES = 10;
+
+    private final Path reportFile;
+    private final ConcurrentLinkedQueue<FileStats> files = new ConcurrentLinkedQueue<>();
+    private long wallNanos;
+
+    private RunStats(Path reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * Creates stats that are written to the given JSON file.
+     */
+    public static RunStats reportingTo(Path reportFile) {
+        return new RunStats(reportFile);
+    }
+
+    /**
+     * Creates stats that record nothing. JFR events are still emitted per file.
+     */
+    public static RunStats disabled() {
+        return new RunStats(null);
+    }
+
+    /**
+     * Whether measurements that cost extra work, like counting AST nodes, should be taken.
+     */
+    public boolean isEnabled() {
+        return reportFile != null;
+    }
+
+    public void record(FileStats stats) {
+        if (isEnabled()) files.add(stats);
+    }
+
+    /**
+     * Adds the wall time of a batch run and writes the report, covering every run so far.
+     */
+    public synchronized void report(long runWallNanos) {
+        if (!isEnabled()) return;
+        wallNanos += runWallNanos;
+
+        try {
+            Path parent = reportFile.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Files.writeString(reportFile, toJson(new ArrayList<>(files)), StandardCharsets.UTF_8);
+            logger.log(Level.INFO, "Wrote run statistics to {0}", reportFile.toAbsolutePath());
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error writing run statistics: {0}", e.getMessage());
+        }
+    }
+
+    private String toJson(List<FileStats> snapshot) {
+        Map<FileStats.Status, Integer> statuses = new EnumMap<>(FileStats.Status.class);
+        Map<Scenario, Integer> stubs = new EnumMap<>(Scenario.class);
+        long bytesRead = 0, bytesWritten = 0, astNodes = 0;
+        for (FileStats file : snapshot) {
+            statuses.merge(file.status(), 1, Integer::sum);
+            file.stubCounts().forEach((scenario, count) -> stubs.merge(scenario, count, Integer::sum));
+            bytesRead += file.bytesRead();
+            bytesWritten += file.bytesWritten();
+            astNodes += file.astNodes();
+        }
+
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"files\": ").append(snapshot.size()).append(",\n");
+        for (FileStats.Status status : FileStats.Status.values()) {
+            json.append("  \"").append(status.name().toLowerCase(Locale.ROOT)).append("\": ")
+                    .append(statuses.getOrDefault(status, 0)).append(",\n");
+        }
+        json.append("  \"wallTimeMillis\": ").append(millis(wallNanos)).append(",\n")
+                .append("  \"bytesRead\": ").append(bytesRead).append(",\n")
+                .append("  \"bytesWritten\": ").append(bytesWritten).append(",\n")
+                .append("  \"astNodes\": ").append(astNodes).append(",\n");
+
+        json.append("  \"stubs\": {");
+        String separator = "";
+        for (Scenario scenario : Scenario.values()) {
+            json.append(separator).append("\"").append(scenario.name()).append("\": ").append(stubs.getOrDefault(scenario, 0));
+            separator = ", ";
+        }
+        json.append("},\n");
+
+        json.append("  \"phases\": {\n");
+        separator = "";
+        for (Phase phase : Phase.values()) {
+            long[] nanos = snapshot.stream().mapToLong(file -> file.nanos(phase)).filter(n -> n >= 0).sorted().toArray();
+            long total = 0;
+            for (long n : nanos) total += n;
+
+            json.append(separator).append("    \"").append(phase.label()).append("\": {")
+                    .append("\"files\": ").append(nanos.length)
+                    .append(", \"totalMillis\": ").append(millis(total))
+                    .append(", \"p50Millis\": ").append(millis(percentile(nanos, 50)))
+                    .append(", \"p90Millis\": ").append(millis(percentile(nanos, 90)))
+                    .append(", \"p99Millis\": ").append(millis(percentile(nanos, 99)))
+                    .append(", \"maxMillis\": ").append(millis(percentile(nanos, 100)))
+                    .append("}");
+            separator = ",\n";
+        }
+        json.append("\n  },\n");
+
+        json.append("  \"slowestFiles\": [\n");
+        separator = "";
+        List<FileStats> slowest = snapshot.stream()
+                .sorted(Comparator.comparingLong(FileStats::totalNanos).reversed())
+                .limit(SLOWEST_FILES)
+                .toList();
+        for (FileStats file : slowest) {
+            json.append(separator).append("    {\"source\": \"").append(escapeJson(Archives.location(file.source()))).append("\"")
+                    .append(", \"status\": \"").append(file.status().name().toLowerCase(Locale.ROOT)).append("\"")
+                    .append(", \"totalMillis\": ").append(millis(file.totalNanos()));
+            for (Phase phase : Phase.values()) {
+                if (file.nanos(phase) >= 0) {
+                    json.append(", \"").append(phase.label()).append("Millis\": ").append(millis(file.nanos(phase)));
+                }
+            }
+            json.append(", \"astNodes\": ").append(file.astNodes()).append("}");
+            separator = ",\n";
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"notGeneratedFiles\": [\n");
+        separator = "";
+        List<FileStats> notGenerated = snapshot.stream()
+                .filter(file -> file.status() == FileStats.Status.REJECTED || file.status() == FileStats.Status.FAILED)
+                .sorted(Comparator.comparing(file -> Archives.location(file.source())))
+                .toList();
+        for (FileStats file : notGenerated) {
+            json.append(separator).append("    {\"source\": \"").append(escapeJson(Archives.location(file.source()))).append("\"")
+                    .append(", \"status\": \"").append(file.status().name().toLowerCase(Locale.ROOT)).append("\"")
+                    .append(", \"reason\": ").append(file.reason() == null ? "null" : "\"" + escapeJson(file.reason()) + "\"")
+                    .append("}");
+            separator = ",\n";
+        }
+        json.append(notGenerated.isEmpty() ? "" : "\n").append("  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values, 0 if there are none.
+     */
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
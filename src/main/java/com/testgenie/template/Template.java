@@ -0,0 +1,69 @@
+package com.testgenie.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stub template compiled into alternating literal and variable segments.
+ *
+ * Template text is copied verbatim except for {@code ${name}} placeholders, which must name a
+ * {@link TemplateVar}. Compiling happens once; rendering only writes the literals and the variable
+ * values straight to the Writer, without building intermediate strings.
+ */
+public final class Template {
+    // literals[i] is written before vars[i]; the last literal follows the last variable
+    private final String[] literals;
+    private final TemplateVar[] vars;
+
+    private Template(String[] literals, TemplateVar[] vars) {
+        this.literals = literals;
+        this.vars = vars;
+    }
+
+    /**
+     * Compiles template text.
+     *
+     * @param name The template name, used in error messages.
+     * @param text The template text.
+     * @throws IllegalArgumentException if a placeholder is unterminated or names an unknown variable
+     */
+    public static Template compile(String name, String text) {
+        List<String> literals = new ArrayList<>();
+        List<TemplateVar> vars = new ArrayList<>();
+
+        int pos = 0;
+        int start;
+        while ((start = text.indexOf("${", pos)) >= 0) {
+            int end = text.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated placeholder in template " + name + " at offset " + start);
+            }
+            literals.add(text.substring(pos, start));
+            try {
+                vars.add(TemplateVar.fromKey(text.substring(start + 2, end)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage() + " in template " + name, e);
+            }
+            pos = end + 1;
+        }
+        literals.add(text.substring(pos));
+
+        return new Template(literals.toArray(String[]::new), vars.toArray(TemplateVar[]::new));
+    }
+
+    /**
+     * Writes the template with its variables replaced.
+     *
+     * @param out    The writer to render to.
+     * @param values The variable values, indexed by {@link TemplateVar#ordinal()}.
+     */
+    public void render(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < vars.length; i++) {
+            out.write(literals[i]);
+            out.write(values[vars[i].ordinal()]);
+        }
+        out.write(literals[vars.length]);
+    }
+}
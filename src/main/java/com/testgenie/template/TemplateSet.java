@@ -0,0 +1,138 @@
+package com.testgenie.template;
+
+import com.testgenie.model.Scenario;
+import com.testgenie.utils.HashUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * TemplateSet holds the compiled templates a test class is rendered from.
+ *
+ * The built-in templates live in {@code src/main/resources/templates/<name>.tmpl}. A user template
+ * directory can override any of them by containing a file with the same name; templates it does
+ * not contain fall back to the built-in ones. Template files are used verbatim, including their
+ * trailing newlines.
+ *
+ * Templates:
+ * - header: package and imports.
+ * - mock-field: one @Mock field, rendered per non-static field.
+ * - inject-mocks: the @InjectMocks field for the class under test.
+ * - set-up: the @BeforeEach method.
+ * - one stub per Scenario, e.g. null-check or returns-boolean.
+ * - footer: closes the test class.
+ */
+public final class TemplateSet {
+    private static final String RESOURCE_DIR = "/templates/";
+    private static final String EXTENSION = ".tmpl";
+
+    private final Template header;
+    private final Template mockField;
+    private final Template injectMocks;
+    private final Template setUp;
+    private final Template footer;
+    private final Map<Scenario, Template> stubs = new EnumMap<>(Scenario.class);
+    private final String fingerprint;
+
+    private TemplateSet(Path overrides) throws IOException {
+        StringBuilder texts = new StringBuilder();
+        header = load(overrides, "header", texts);
+        mockField = load(overrides, "mock-field", texts);
+        injectMocks = load(overrides, "inject-mocks", texts);
+        setUp = load(overrides, "set-up", texts);
+        footer = load(overrides, "footer", texts);
+        for (Scenario scenario : Scenario.values()) {
+            stubs.put(scenario, load(overrides, stubName(scenario), texts));
+        }
+        fingerprint = HashUtil.sha256(texts.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The built-in templates.
+     */
+    public static TemplateSet defaults() {
+        try {
+            return new TemplateSet(null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Built-in templates are missing", e);
+        }
+    }
+
+    /**
+     * The built-in templates, overridden by any {@code <name>.tmpl} file in the given directory.
+     *
+     * @throws IOException if a template file cannot be read
+     * @throws IllegalArgumentException if a template references an unknown variable
+     */
+    public static TemplateSet load(Path overrides) throws IOException {
+        if (!Files.isDirectory(overrides)) {
+            throw new IOException("Template directory not found: " + overrides);
+        }
+        return new TemplateSet(overrides);
+    }
+
+    public Template header() {
+        return header;
+    }
+
+    public Template mockField() {
+        return mockField;
+    }
+
+    public Template injectMocks() {
+        return injectMocks;
+    }
+
+    public Template setUp() {
+        return setUp;
+    }
+
+    public Template footer() {
+        return footer;
+    }
+
+    public Template stub(Scenario scenario) {
+        return stubs.get(scenario);
+    }
+
+    /**
+     * A hash over the text of every template, so output rendered from other templates can be detected.
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The template name of a scenario's stub, e.g. "null-check".
+     */
+    public static String stubName(Scenario scenario) {
+        return switch (scenario) {
+            case NULL_CHECK -> "null-check";
+            case EXCEPTION -> "throws-exception";
+            case CONDITIONAL -> "conditionals";
+            case OPTIONAL -> "returns-optional";
+            case BOOLEAN -> "returns-boolean";
+            case STATE_CHANGE -> "changes-state";
+        };
+    }
+
+    private static Template load(Path overrides, String name, StringBuilder texts) throws IOException {
+        String text;
+        Path file = overrides == null ? null : overrides.resolve(name + EXTENSION);
+        if (file != null && Files.isRegularFile(file)) {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } else {
+            try (InputStream in = TemplateSet.class.getResourceAsStream(RESOURCE_DIR + name + EXTENSION)) {
+                if (in == null) throw new IOException("Missing built-in template: " + name);
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        texts.append(name).append('\0').append(text).append('\0');
+        return Template.compile(name, text);
+    }
+}
@@ -0,0 +1,43 @@
+package com.testgenie.template;
+
+/**
+ * The variables a stub template can reference as {@code ${name}}.
+ * Templates are compiled against this fixed set, so values are looked up by ordinal while rendering.
+ */
+public enum TemplateVar {
+    CLASS_NAME("className"),
+    INSTANCE_NAME("instanceName"),
+    TEST_CLASS_NAME("testClassName"),
+    IMPORTS("imports"),
+    METHOD_NAME("methodName"),
+    TEST_METHOD_NAME("testMethodName"),
+    ARGUMENTS("arguments"),
+    NULL_ARGUMENTS("nullArguments"),
+    FIELD_TYPE("fieldType"),
+    FIELD_NAME("fieldName");
+
+    private final String key;
+
+    TemplateVar(String key) {
+        this.key = key;
+    }
+
+    /**
+     * The name used in templates, e.g. "methodName" for {@code ${methodName}}.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Resolves a template variable name.
+     *
+     * @throws IllegalArgumentException if no variable has that name
+     */
+    public static TemplateVar fromKey(String key) {
+        for (TemplateVar var : values()) {
+            if (var.key.equals(key)) return var;
+        }
+        throw new IllegalArgumentException("Unknown template variable: ${" + key + "}");
+    }
+}
@@ -0,0 +1,22 @@
+package com.testgenie.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashing helpers used to detect source files that changed since the last run.
+ */
+public class HashUtil {
+    /**
+     * Computes the SHA-256 hash of the given bytes as a lowercase hex string.
+     */
+    public static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}